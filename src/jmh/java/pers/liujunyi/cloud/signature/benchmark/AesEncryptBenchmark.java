@@ -0,0 +1,113 @@
+package pers.liujunyi.cloud.signature.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pers.liujunyi.cloud.signature.encrypt.AesCipherEngine;
+import pers.liujunyi.cloud.signature.encrypt.AesEncryptUtils;
+import pers.liujunyi.cloud.signature.encrypt.AesGcmEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * AES 加解密性能测试
+ * @author ljy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AesEncryptBenchmark {
+
+    /** 明文字节数 */
+    @Param({"64", "1024", "16384", "262144"})
+    private int size;
+
+    private String key;
+
+    private String plainText;
+
+    private byte[] plain;
+
+    private byte[] cipherText;
+
+    private String base64CipherText;
+
+    private byte[] gcmCipherText;
+
+    private ByteBuffer directPlain;
+
+    private ByteBuffer directCipher;
+
+    private ByteBuffer gcmCipher;
+
+    private ByteBuffer gcmWork;
+
+    @Setup
+    public void setup() throws Exception {
+        this.key = AesEncryptUtils.generateDesKey();
+        this.plainText = BenchmarkData.text(this.size);
+        this.plain = this.plainText.getBytes(StandardCharsets.UTF_8);
+        this.cipherText = AesCipherEngine.of(this.key).encrypt(this.plain);
+        this.base64CipherText = AesEncryptUtils.aesEncrypt(this.plainText, this.key);
+        this.directPlain = ByteBuffer.allocateDirect(this.plain.length);
+        this.directPlain.put(this.plain).flip();
+        this.directCipher = ByteBuffer.allocateDirect(AesGcmEngine.getOutputSize(this.plain.length));
+        this.gcmCipherText = AesGcmEngine.of(this.key).encrypt(this.plain);
+        this.gcmCipher = ByteBuffer.allocateDirect(this.gcmCipherText.length);
+        this.gcmCipher.put(this.gcmCipherText).flip();
+        this.gcmWork = ByteBuffer.allocateDirect(this.gcmCipherText.length);
+    }
+
+    @Benchmark
+    public byte[] engineEncrypt() throws Exception {
+        return AesCipherEngine.of(this.key).encrypt(this.plain);
+    }
+
+    @Benchmark
+    public byte[] engineDecrypt() throws Exception {
+        return AesCipherEngine.of(this.key).decrypt(this.cipherText);
+    }
+
+    @Benchmark
+    public String utilsEncrypt() {
+        return AesEncryptUtils.aesEncrypt(this.plainText, this.key);
+    }
+
+    @Benchmark
+    public String utilsDecrypt() {
+        return AesEncryptUtils.aesDecrypt(this.base64CipherText, this.key);
+    }
+
+    @Benchmark
+    public int gcmEncryptDirect() throws Exception {
+        this.directPlain.rewind();
+        this.directCipher.clear();
+        return AesGcmEngine.of(this.key).encrypt(this.directPlain, this.directCipher);
+    }
+
+    @Benchmark
+    public int gcmDecryptInPlaceDirect() throws Exception {
+        // 原地解密会覆盖密文, 每次先复制一份
+        this.gcmWork.clear();
+        this.gcmWork.put(this.gcmCipher.duplicate()).flip();
+        return AesGcmEngine.of(this.key).decryptInPlace(this.gcmWork);
+    }
+
+    @Benchmark
+    public byte[] gcmDecrypt() throws Exception {
+        return AesGcmEngine.of(this.key).decrypt(this.gcmCipherText);
+    }
+}
@@ -0,0 +1,77 @@
+package pers.liujunyi.cloud.signature.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/***
+ * 性能测试数据
+ * @author ljy
+ */
+final class BenchmarkData {
+
+    private static final String CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private BenchmarkData() { }
+
+    /**
+     * 固定种子生成的 ASCII 文本
+     * @param length 长度
+     * @return
+     */
+    static String text(int length) {
+        Random random = new Random(length);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 签名信息明文
+     * @param secretKey 密钥
+     * @param signTime 签名时间
+     * @return
+     */
+    static String claims(String secretKey, long signTime) {
+        return claims(secretKey, signTime, params());
+    }
+
+    /**
+     * 签名信息中的请求参数, 与 {@link #claims(String, long)} 中的一致
+     * @return
+     */
+    static Map<String, String> params() {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("userId", "10086");
+        params.put("page", "1");
+        params.put("size", "20");
+        params.put("keyword", text(16));
+        return params;
+    }
+
+    /**
+     * 与 {@link #params()} 一致的查询字符串, 签名校验时请求参数与签名信息匹配
+     * @return
+     */
+    static String query() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> entry : params().entrySet()) {
+            if (builder.length() > 0) {
+                builder.append('&');
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    private static String claims(String secretKey, long signTime, Map<String, String> params) {
+        StringBuilder builder = new StringBuilder("{\"signTime\":").append(signTime)
+                .append(",\"secret\":\"").append(secretKey).append("\",\"parameter\":true");
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            builder.append(",\"").append(entry.getKey()).append("\":\"").append(entry.getValue()).append('"');
+        }
+        return builder.append('}').toString();
+    }
+}
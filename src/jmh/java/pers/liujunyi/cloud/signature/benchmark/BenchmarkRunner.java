@@ -0,0 +1,144 @@
+package pers.liujunyi.cloud.signature.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pers.liujunyi.cloud.signature.util.JsonUtils;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***
+ * 性能测试入口
+ *
+ * 支持所有 JMH 命令行参数, 默认运行全部性能测试并开启 GC 分析(每次操作分配的字节数).
+ * 结果以 JSON 写入 -Djmh.result (默认 jmh-result.json), 如果 -Djmh.baseline
+ * (默认 src/jmh/baseline/jmh-baseline.json) 存在, 逐项输出与基线的差异;
+ * -Djmh.saveBaseline=true 时把本次结果保存为新的基线. 基线只保存每项的得分、单位和每次操作分配的字节数, 每项一行.
+ * @author ljy
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOC_METRIC = "·gc.alloc.rate.norm";
+
+    private BenchmarkRunner() { }
+
+    public static void main(String[] args) throws Exception {
+        Path result = Paths.get(System.getProperty("jmh.result", "jmh-result.json"));
+        Path baseline = Paths.get(System.getProperty("jmh.baseline", "src/jmh/baseline/jmh-baseline.json"));
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+        new Runner(options).run();
+        if (Files.exists(baseline)) {
+            compare(baseline, result);
+        }
+        if (Boolean.getBoolean("jmh.saveBaseline")) {
+            File parent = baseline.toAbsolutePath().getParent().toFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new IllegalStateException("无法创建目录 " + parent);
+            }
+            saveBaseline(result, baseline);
+            System.out.println("基线已保存到 " + baseline);
+        }
+    }
+
+    /**
+     * 输出本次结果与基线的差异
+     * @param baseline 基线结果
+     * @param result 本次结果
+     * @throws Exception
+     */
+    private static void compare(Path baseline, Path result) throws Exception {
+        Map<String, Double> before = readBaseline(baseline);
+        Map<String, JsonNode> after = index(result);
+        System.out.println();
+        System.out.println(String.format("%-72s %14s %14s %9s %14s", "Benchmark", "Baseline", "Current", "Change", "B/op"));
+        for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+            JsonNode current = entry.getValue();
+            double score = current.path("primaryMetric").path("score").asDouble();
+            JsonNode alloc = current.path("secondaryMetrics").path(ALLOC_METRIC).path("score");
+            String allocText = alloc.isMissingNode() ? "-" : String.format("%.1f", alloc.asDouble());
+            Double base = before.get(entry.getKey());
+            if (base == null) {
+                System.out.println(String.format("%-72s %14s %14.3f %9s %14s", entry.getKey(), "-", score, "-", allocText));
+                continue;
+            }
+            double change = base == 0 ? 0 : (score - base) * 100 / base;
+            System.out.println(String.format("%-72s %14.3f %14.3f %+8.1f%% %14s", entry.getKey(), base, score, change, allocText));
+        }
+    }
+
+    /**
+     * 把本次结果精简后保存为基线
+     * @param result 本次结果
+     * @param baseline 基线文件
+     * @throws Exception
+     */
+    private static void saveBaseline(Path result, Path baseline) throws Exception {
+        StringBuilder json = new StringBuilder("[\n");
+        for (Map.Entry<String, JsonNode> entry : index(result).entrySet()) {
+            JsonNode primary = entry.getValue().path("primaryMetric");
+            JsonNode alloc = entry.getValue().path("secondaryMetrics").path(ALLOC_METRIC).path("score");
+            // 保留小数位, 默认的 JsonNodeFactory 会去掉末尾的 0 并输出科学计数法
+            ObjectNode node = new ObjectNode(JsonNodeFactory.withExactBigDecimals(true));
+            node.put("benchmark", entry.getKey());
+            node.put("score", BigDecimal.valueOf(primary.path("score").asDouble()).setScale(3, RoundingMode.HALF_UP));
+            node.put("unit", primary.path("scoreUnit").asText());
+            if (!alloc.isMissingNode()) {
+                node.put("alloc", BigDecimal.valueOf(alloc.asDouble()).setScale(1, RoundingMode.HALF_UP));
+            }
+            if (json.length() > 2) {
+                json.append(",\n");
+            }
+            json.append("  ").append(JsonUtils.getMapper().writeValueAsString(node));
+        }
+        json.append("\n]\n");
+        Files.write(baseline, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 读取基线中每项的得分
+     * @param baseline 基线文件
+     * @return
+     * @throws Exception
+     */
+    private static Map<String, Double> readBaseline(Path baseline) throws Exception {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (JsonNode node : JsonUtils.getMapper().readTree(baseline.toFile())) {
+            scores.put(node.path("benchmark").asText(), node.path("score").asDouble());
+        }
+        return scores;
+    }
+
+    private static Map<String, JsonNode> index(Path path) throws Exception {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode node : JsonUtils.getMapper().readTree(path.toFile())) {
+            StringBuilder key = new StringBuilder(node.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = node.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString().replace("pers.liujunyi.cloud.signature.benchmark.", ""), node);
+        }
+        return results;
+    }
+}
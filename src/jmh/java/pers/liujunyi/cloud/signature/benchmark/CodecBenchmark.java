@@ -0,0 +1,106 @@
+package pers.liujunyi.cloud.signature.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pers.liujunyi.cloud.signature.encrypt.Base64Utils;
+import pers.liujunyi.cloud.signature.exception.ErrorCodeEnum;
+import pers.liujunyi.cloud.signature.restful.ResultInfo;
+import pers.liujunyi.cloud.signature.util.JsonUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * BASE64 编解码和 JSON 序列化性能测试
+ * @author ljy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    /** 原始数据字节数 */
+    @Param({"64", "1024", "16384"})
+    private int size;
+
+    private byte[] bytes;
+
+    private String base64;
+
+    private byte[] decodeBuffer;
+
+    private ResultInfo result;
+
+    private String resultJson;
+
+    private byte[] resultJsonBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        this.bytes = BenchmarkData.text(this.size).getBytes(StandardCharsets.UTF_8);
+        this.base64 = Base64Utils.encode(this.bytes);
+        this.decodeBuffer = new byte[this.size];
+        this.result = new ResultInfo(ErrorCodeEnum.SIGN_INVALID);
+        this.result.setSuccess(false);
+        this.result.setTimestamp("2019-01-01 00:00:00");
+        this.result.setData(BenchmarkData.text(this.size));
+        this.resultJson = JsonUtils.toJson(this.result);
+        this.resultJsonBytes = this.resultJson.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String base64Encode() throws Exception {
+        return Base64Utils.encode(this.bytes);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() throws Exception {
+        return Base64Utils.decode(this.base64);
+    }
+
+    /**
+     * 解码到调用方提供的缓冲区
+     */
+    @Benchmark
+    public int base64DecodeToBuffer() {
+        return Base64Utils.decode(this.base64, this.decodeBuffer, 0);
+    }
+
+    @Benchmark
+    public String jsonWrite() {
+        return JsonUtils.toJson(this.result);
+    }
+
+    /**
+     * 直接序列化为 UTF-8 字节
+     */
+    @Benchmark
+    public byte[] jsonWriteBytes() {
+        return JsonUtils.toJsonBytes(this.result);
+    }
+
+    @Benchmark
+    public ResultInfo jsonRead() {
+        return JsonUtils.toBean(ResultInfo.class, this.resultJson);
+    }
+
+    /**
+     * 直接从 UTF-8 字节解析
+     */
+    @Benchmark
+    public ResultInfo jsonReadBytes() {
+        return JsonUtils.toBean(ResultInfo.class, this.resultJsonBytes);
+    }
+}
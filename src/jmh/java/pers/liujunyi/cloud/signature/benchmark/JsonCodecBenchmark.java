@@ -0,0 +1,84 @@
+package pers.liujunyi.cloud.signature.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pers.liujunyi.cloud.signature.encrypt.AesEncryptUtils;
+import pers.liujunyi.cloud.signature.exception.ErrorCodeEnum;
+import pers.liujunyi.cloud.signature.restful.ResultInfo;
+import pers.liujunyi.cloud.signature.util.JsonCodec;
+import pers.liujunyi.cloud.signature.util.JsonCodecs;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * 各 JSON 编解码实现的性能对比
+ * @author ljy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+
+    /** 编解码实现名称 */
+    @Param({"jackson", "fastjson"})
+    private String codecName;
+
+    /** 数据项中字符串的字节数 */
+    @Param({"64", "1024"})
+    private int size;
+
+    private JsonCodec codec;
+
+    private ResultInfo result;
+
+    private byte[] resultJson;
+
+    private String key;
+
+    @Setup
+    public void setup() throws Exception {
+        this.codec = JsonCodecs.forName(this.codecName);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("userId", 10086L);
+        data.put("userName", BenchmarkData.text(16));
+        data.put("content", BenchmarkData.text(this.size));
+        this.result = new ResultInfo(ErrorCodeEnum.SUCCESS, data);
+        this.result.setTimestamp("2019-01-01 00:00:00");
+        this.result.setTotal(1L);
+        this.resultJson = this.codec.encode(this.result);
+        this.key = AesEncryptUtils.generateDesKey();
+        JsonCodecs.set(this.codec);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return this.codec.encode(this.result);
+    }
+
+    @Benchmark
+    public ResultInfo decode() {
+        return this.codec.decode(this.resultJson, 0, this.resultJson.length, ResultInfo.class);
+    }
+
+    /**
+     * 对象序列化后 AES 加密
+     */
+    @Benchmark
+    public String aesEncryptObject() {
+        return AesEncryptUtils.aesEncrypt((Object) this.result, this.key);
+    }
+}
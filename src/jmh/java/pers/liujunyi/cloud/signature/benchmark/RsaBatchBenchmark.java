@@ -0,0 +1,77 @@
+package pers.liujunyi.cloud.signature.benchmark;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pers.liujunyi.cloud.signature.encrypt.RsaBatchUtils;
+import pers.liujunyi.cloud.signature.encrypt.RsaEncryptUtils;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * RSA 批量验签性能测试: 逐条调用与并行批量对比
+ * @author ljy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RsaBatchBenchmark {
+
+    /** 每批条数 */
+    @Param({"256", "4096"})
+    private int batch;
+
+    private String publicKey;
+
+    private List<String> data;
+
+    private List<String> signs;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(RsaEncryptUtils.KEY_ALGORITHM);
+        generator.initialize(1024);
+        KeyPair keyPair = generator.generateKeyPair();
+        this.publicKey = Base64.encodeBase64String(keyPair.getPublic().getEncoded());
+        this.data = new ArrayList<>(this.batch);
+        for (int i = 0; i < this.batch; i++) {
+            this.data.add(i + "," + BenchmarkData.text(96));
+        }
+        String privateKey = Base64.encodeBase64String(keyPair.getPrivate().getEncoded());
+        this.signs = Arrays.asList(RsaBatchUtils.signBatch(this.data, privateKey));
+    }
+
+    @Benchmark
+    public int verifyLoop() throws Exception {
+        int verified = 0;
+        for (int i = 0; i < this.batch; i++) {
+            if (RsaEncryptUtils.verify(this.data.get(i), this.publicKey, this.signs.get(i))) {
+                verified++;
+            }
+        }
+        return verified;
+    }
+
+    @Benchmark
+    public BitSet verifyBatch() {
+        return RsaBatchUtils.verifyBatch(this.data, this.signs, this.publicKey);
+    }
+}
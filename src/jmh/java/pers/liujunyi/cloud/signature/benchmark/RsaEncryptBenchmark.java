@@ -0,0 +1,91 @@
+package pers.liujunyi.cloud.signature.benchmark;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pers.liujunyi.cloud.signature.encrypt.RsaEncryptUtils;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * RSA 签名/验签/分段加解密/信封加解密性能测试
+ * @author ljy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RsaEncryptBenchmark {
+
+    /** 数据字节数 */
+    @Param({"64", "1024", "8192", "102400"})
+    private int size;
+
+    private String publicKey;
+
+    private String privateKey;
+
+    private String data;
+
+    private String sign;
+
+    private String encrypted;
+
+    private String envelope;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(RsaEncryptUtils.KEY_ALGORITHM);
+        generator.initialize(1024);
+        KeyPair keyPair = generator.generateKeyPair();
+        this.publicKey = Base64.encodeBase64String(keyPair.getPublic().getEncoded());
+        this.privateKey = Base64.encodeBase64String(keyPair.getPrivate().getEncoded());
+        this.data = BenchmarkData.text(this.size);
+        this.sign = RsaEncryptUtils.sign(this.data, this.privateKey);
+        this.encrypted = RsaEncryptUtils.encryptByPublicKey(this.data, this.publicKey);
+        this.envelope = RsaEncryptUtils.encryptByEnvelope(this.data, this.publicKey);
+    }
+
+    @Benchmark
+    public String sign() throws Exception {
+        return RsaEncryptUtils.sign(this.data, this.privateKey);
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return RsaEncryptUtils.verify(this.data, this.publicKey, this.sign);
+    }
+
+    @Benchmark
+    public String encryptByPublicKey() throws Exception {
+        return RsaEncryptUtils.encryptByPublicKey(this.data, this.publicKey);
+    }
+
+    @Benchmark
+    public String decryptByPrivateKey() throws Exception {
+        return RsaEncryptUtils.decryptByPrivateKey(this.encrypted, this.privateKey);
+    }
+
+    @Benchmark
+    public String encryptByEnvelope() throws Exception {
+        return RsaEncryptUtils.encryptByEnvelope(this.data, this.publicKey);
+    }
+
+    @Benchmark
+    public String decryptByEnvelope() throws Exception {
+        return RsaEncryptUtils.decryptByEnvelope(this.envelope, this.privateKey);
+    }
+}
@@ -0,0 +1,160 @@
+package pers.liujunyi.cloud.signature.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import pers.liujunyi.cloud.signature.encrypt.AesEncryptUtils;
+import pers.liujunyi.cloud.signature.encrypt.HmacSignUtils;
+import pers.liujunyi.cloud.signature.encrypt.SignInfo;
+import pers.liujunyi.cloud.signature.encrypt.SignTenantRegistry;
+import pers.liujunyi.cloud.signature.encrypt.filter.SignAuthFilter;
+import pers.liujunyi.cloud.signature.encrypt.filter.SignMetrics;
+import pers.liujunyi.cloud.signature.encrypt.filter.SignVerifyScheduler;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * SignAuthFilter 端到端性能测试, 使用 MockServerWebExchange 模拟请求
+ * @author ljy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignAuthFilterBenchmark {
+
+    private static final GatewayFilterChain CHAIN = exchange -> Mono.empty();
+
+    /** 与签名信息中的参数一致的查询字符串 */
+    private static final String QUERY = BenchmarkData.query();
+
+    private static final String URL = "/api/user/list?" + QUERY;
+
+    /** 是否开启签名校验结果缓存 */
+    @Param({"true", "false"})
+    private boolean cache;
+
+    private SignAuthFilter filter;
+
+    private String sign;
+
+    private String invalidSign;
+
+    private String binarySign;
+
+    private String digestSign;
+
+    private String hmacSign;
+
+    private String hmacSignTime;
+
+    @Setup
+    public void setup() throws Exception {
+        String key = AesEncryptUtils.generateDesKey();
+        SignInfo signInfo = new SignInfo();
+        signInfo.setSecretKey(key);
+        signInfo.setSignExpireTime(60);
+        SignTenantRegistry tenantRegistry = new SignTenantRegistry();
+        ReflectionTestUtils.setField(tenantRegistry, "signObj", signInfo);
+        ReflectionTestUtils.setField(tenantRegistry, "environment", new StandardEnvironment());
+        tenantRegistry.init();
+        SignMetrics metrics = new SignMetrics();
+        metrics.init();
+        this.filter = new SignAuthFilter();
+        ReflectionTestUtils.setField(this.filter, "tenantRegistry", tenantRegistry);
+        ReflectionTestUtils.setField(this.filter, "metrics", metrics);
+        ReflectionTestUtils.setField(this.filter, "verifyScheduler", new SignVerifyScheduler());
+        ReflectionTestUtils.setField(this.filter, "matchStarts", "/api/health:skip,/api/**");
+        ReflectionTestUtils.setField(this.filter, "cacheEnabled", this.cache);
+        ReflectionTestUtils.setField(this.filter, "cacheMaximumSize", 10000);
+        ReflectionTestUtils.setField(this.filter, "hmacEnabled", true);
+        ReflectionTestUtils.setField(this.filter, "clockSkewMillis", 30000L);
+        this.filter.init();
+        this.sign = AesEncryptUtils.aesEncrypt(BenchmarkData.claims(key, System.currentTimeMillis()), key);
+        this.binarySign = AesEncryptUtils.aesEncryptSignToken(System.currentTimeMillis(), true, BenchmarkData.params(), key);
+        long signTime = System.currentTimeMillis();
+        this.digestSign = AesEncryptUtils.aesEncryptSignToken(signTime, QUERY, key);
+        this.hmacSignTime = String.valueOf(signTime);
+        this.hmacSign = HmacSignUtils.sign("GET", "/api/user/list", QUERY, signTime, null, key);
+        this.invalidSign = AesEncryptUtils.aesEncrypt(BenchmarkData.claims("invalid", System.currentTimeMillis()), key);
+        // 确认 valid* 测量的是校验通过的路径, 而不是拒绝的路径
+        if (validSign() != null || validBinarySign() != null || validDigestSign() != null || validHmacSign() != null) {
+            throw new IllegalStateException("签名正确的请求没有通过校验");
+        }
+    }
+
+    /**
+     * 签名正确的 GET 请求, 校验请求参数
+     */
+    @Benchmark
+    public HttpStatus validSign() {
+        return run(MockServerHttpRequest.get(URL)
+                .header("sign", this.sign).build());
+    }
+
+    /**
+     * 与 validSign 相同的请求, 使用二进制格式的签名信息
+     */
+    @Benchmark
+    public HttpStatus validBinarySign() {
+        return run(MockServerHttpRequest.get(URL)
+                .header("sign", this.binarySign).build());
+    }
+
+    /**
+     * 与 validSign 相同的请求, 签名信息中携带查询参数摘要
+     */
+    @Benchmark
+    public HttpStatus validDigestSign() {
+        return run(MockServerHttpRequest.get(URL)
+                .header("sign", this.digestSign).build());
+    }
+
+    /**
+     * 与 validSign 相同的请求, 使用 HMAC 签名
+     */
+    @Benchmark
+    public HttpStatus validHmacSign() {
+        return run(MockServerHttpRequest.get(URL)
+                .header("sign", this.hmacSign).header(HmacSignUtils.SIGN_TIME_HEADER, this.hmacSignTime).build());
+    }
+
+    /**
+     * 签名密钥不正确的请求
+     */
+    @Benchmark
+    public HttpStatus invalidSign() {
+        return run(MockServerHttpRequest.get("/api/user/list").header("sign", this.invalidSign).build());
+    }
+
+    /**
+     * 不需要校验的路径
+     */
+    @Benchmark
+    public HttpStatus skipped() {
+        return run(MockServerHttpRequest.get("/api/health").build());
+    }
+
+    private HttpStatus run(MockServerHttpRequest request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        this.filter.filter(exchange, CHAIN).block();
+        return exchange.getResponse().getStatusCode();
+    }
+}
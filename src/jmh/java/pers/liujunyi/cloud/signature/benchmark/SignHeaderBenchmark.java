@@ -0,0 +1,60 @@
+package pers.liujunyi.cloud.signature.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pers.liujunyi.cloud.signature.encrypt.AesEncryptUtils;
+import pers.liujunyi.cloud.signature.util.JsonUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * sign 请求头解析性能测试: BASE64 解码 + AES 解密 + JSON 解析
+ * @author ljy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignHeaderBenchmark {
+
+    private String key;
+
+    private String sign;
+
+    @Setup
+    public void setup() throws Exception {
+        this.key = AesEncryptUtils.generateDesKey();
+        this.sign = AesEncryptUtils.aesEncrypt(BenchmarkData.claims(this.key, System.currentTimeMillis()), this.key);
+    }
+
+    /**
+     * 字符串方式: 解密为字符串后再解析
+     */
+    @Benchmark
+    public Map<?, ?> stringPath() throws Exception {
+        String decryptBody = AesEncryptUtils.aesDecrypt(this.sign, this.key);
+        return JsonUtils.getMapper().readValue(decryptBody, Map.class);
+    }
+
+    /**
+     * 缓冲区方式: 解码和解密都在线程缓冲区中完成, 直接按字节解析
+     */
+    @Benchmark
+    public Map<?, ?> bufferPath() throws Exception {
+        ByteBuffer decryptBody = AesEncryptUtils.aesDecryptToBuffer(this.sign, this.key);
+        return JsonUtils.getMapper().readValue(decryptBody.array(),
+                decryptBody.arrayOffset() + decryptBody.position(), decryptBody.remaining(), Map.class);
+    }
+}
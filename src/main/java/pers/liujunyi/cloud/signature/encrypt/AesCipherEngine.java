@@ -0,0 +1,230 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/***
+ * AES 加解密引擎
+ *
+ * 每个密钥只派生一次 SecretKeySpec, 每个线程持有已初始化好的 Cipher 并重复使用,
+ * 适合在 Netty 事件循环这类固定线程上反复调用.<br>
+ * Cipher 在 doFinal 之后会自动回到 init 之后的状态, 所以同一线程可以直接复用.
+ * @author ljy
+ */
+public final class AesCipherEngine {
+
+    private static final String ALGORITHM = "AES";
+
+    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+
+    /** 缓存的密钥数量上限, 达到后按二次机会(CLOCK)算法淘汰一个最近没有使用的密钥 */
+    private static final int MAX_CACHED_KEYS = 64;
+
+    private static final ConcurrentMap<String, AesCipherEngine> ENGINES = new ConcurrentHashMap<>();
+
+    private final SecretKeySpec secretKey;
+
+    /** 上次淘汰之后是否被使用过 */
+    private volatile boolean referenced;
+
+    private final ThreadLocal<Cipher> encryptCipher;
+
+    private final ThreadLocal<Cipher> decryptCipher;
+
+    private AesCipherEngine(String secretKey) {
+        this.secretKey = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.encryptCipher = ThreadLocal.withInitial(() -> initCipher(Cipher.ENCRYPT_MODE));
+        this.decryptCipher = ThreadLocal.withInitial(() -> initCipher(Cipher.DECRYPT_MODE));
+    }
+
+    /**
+     * 获取密钥对应的加解密引擎
+     * @param secretKey 密钥
+     * @return
+     */
+    public static AesCipherEngine of(String secretKey) {
+        AesCipherEngine engine = ENGINES.get(secretKey);
+        if (engine != null) {
+            // 已经标记过时不再写, 避免热点密钥的缓存行在线程之间来回失效
+            if (!engine.referenced) {
+                engine.referenced = true;
+            }
+            return engine;
+        }
+        if (ENGINES.size() >= MAX_CACHED_KEYS) {
+            evictOne();
+        }
+        return ENGINES.computeIfAbsent(secretKey, AesCipherEngine::new);
+    }
+
+    /**
+     * 淘汰一个密钥: 遍历时清除经过的引擎的使用标记, 移除第一个没有被使用过的; 全部都被使用过时移除遍历到的第一个
+     */
+    private static void evictOne() {
+        Map.Entry<String, AesCipherEngine> first = null;
+        for (Map.Entry<String, AesCipherEngine> entry : ENGINES.entrySet()) {
+            AesCipherEngine candidate = entry.getValue();
+            if (!candidate.referenced) {
+                ENGINES.remove(entry.getKey(), candidate);
+                return;
+            }
+            candidate.referenced = false;
+            if (first == null) {
+                first = entry;
+            }
+        }
+        if (first != null) {
+            ENGINES.remove(first.getKey(), first.getValue());
+        }
+    }
+
+    /**
+     * 创建不进入共享缓存的加解密引擎, 由调用方自己持有
+     * @param secretKey 密钥
+     * @return
+     */
+    public static AesCipherEngine create(String secretKey) {
+        return new AesCipherEngine(secretKey);
+    }
+
+    /**
+     * 加密
+     * @param data 明文
+     * @return 密文
+     * @throws GeneralSecurityException
+     */
+    public byte[] encrypt(byte[] data) throws GeneralSecurityException {
+        return encrypt(data, 0, data.length);
+    }
+
+    /**
+     * 加密
+     * @param data 明文
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 密文
+     * @throws GeneralSecurityException
+     */
+    public byte[] encrypt(byte[] data, int offset, int length) throws GeneralSecurityException {
+        return doFinal(this.encryptCipher, data, offset, length);
+    }
+
+    /**
+     * 解密
+     * @param data 密文
+     * @return 明文
+     * @throws GeneralSecurityException
+     */
+    public byte[] decrypt(byte[] data) throws GeneralSecurityException {
+        return decrypt(data, 0, data.length);
+    }
+
+    /**
+     * 解密
+     * @param data 密文
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 明文
+     * @throws GeneralSecurityException
+     */
+    public byte[] decrypt(byte[] data, int offset, int length) throws GeneralSecurityException {
+        return doFinal(this.decryptCipher, data, offset, length);
+    }
+
+    /**
+     * 原地解密, 明文覆盖密文所在的区间
+     * @param data 密文
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 明文长度
+     * @throws GeneralSecurityException
+     */
+    public int decryptInPlace(byte[] data, int offset, int length) throws GeneralSecurityException {
+        Cipher cipher = this.decryptCipher.get();
+        try {
+            // Cipher 保证输入输出为同一数组时的正确性
+            return cipher.doFinal(data, offset, length, data, offset);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            this.decryptCipher.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * 加密 input 中剩余的数据并写入 output
+     * @param input 明文
+     * @param output 密文输出, 剩余空间不能小于 {@link #getOutputSize(int)}
+     * @return 写入的字节数
+     * @throws GeneralSecurityException
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output) throws GeneralSecurityException {
+        return doFinal(this.encryptCipher, input, output);
+    }
+
+    /**
+     * 解密 input 中剩余的数据并写入 output
+     * @param input 密文
+     * @param output 明文输出
+     * @return 写入的字节数
+     * @throws GeneralSecurityException
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output) throws GeneralSecurityException {
+        return doFinal(this.decryptCipher, input, output);
+    }
+
+    /**
+     * 加密 length 字节明文后的最大密文长度
+     * @param length 明文长度
+     * @return
+     */
+    public int getOutputSize(int length) {
+        return this.encryptCipher.get().getOutputSize(length);
+    }
+
+    /**
+     * 创建一个独立的 Cipher, 用于需要分段 update 的流式场景
+     * @param mode Cipher.ENCRYPT_MODE 或 Cipher.DECRYPT_MODE
+     * @return
+     * @throws GeneralSecurityException
+     */
+    public Cipher newCipher(int mode) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(mode, this.secretKey);
+        return cipher;
+    }
+
+    private Cipher initCipher(int mode) {
+        try {
+            return newCipher(mode);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化 " + TRANSFORMATION + " 失败", e);
+        }
+    }
+
+    private static byte[] doFinal(ThreadLocal<Cipher> holder, byte[] data, int offset, int length)
+            throws GeneralSecurityException {
+        try {
+            return holder.get().doFinal(data, offset, length);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // 出错后 Cipher 的状态不可信, 下次重新创建
+            holder.remove();
+            throw e;
+        }
+    }
+
+    private static int doFinal(ThreadLocal<Cipher> holder, ByteBuffer input, ByteBuffer output)
+            throws GeneralSecurityException {
+        try {
+            return holder.get().doFinal(input, output);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            holder.remove();
+            throw e;
+        }
+    }
+}
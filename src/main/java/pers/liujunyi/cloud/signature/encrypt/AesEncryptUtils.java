@@ -1,12 +1,13 @@
 package pers.liujunyi.cloud.signature.encrypt;
 
-import com.alibaba.fastjson.JSON;
 import org.apache.commons.codec.binary.Base64;
+import pers.liujunyi.cloud.signature.util.JsonCodecs;
 
-import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 /***
  *
@@ -14,9 +15,13 @@ import javax.crypto.spec.SecretKeySpec;
  */
 public class AesEncryptUtils {
 	private static final String KEY = "dO6+g3+08ELBKtx/1/WBYQ==";
-	private static final String ALGORITHMSTR = "AES/ECB/PKCS5Padding";
 	private static final Integer KEY_LENGTH = 128;
 
+	/** 每个线程复用的解密缓冲区上限, 超过时临时分配 */
+	private static final int SCRATCH_LIMIT = 64 * 1024;
+
+	private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[1024]);
+
 	/**
 	 * 生成密钥
 	 * @return
@@ -54,11 +59,7 @@ public class AesEncryptUtils {
 	}
 
 	public static byte[] aesEncryptToBytes(String content, String encryptKey) throws Exception {
-		KeyGenerator kgen = KeyGenerator.getInstance("AES");
-		kgen.init(KEY_LENGTH);
-		Cipher cipher = Cipher.getInstance(ALGORITHMSTR);
-		cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(encryptKey.getBytes(), "AES"));
-		return cipher.doFinal(content.getBytes("utf-8"));
+		return AesCipherEngine.of(encryptKey).encrypt(content.getBytes(StandardCharsets.UTF_8));
 	}
 
 	/**
@@ -78,7 +79,7 @@ public class AesEncryptUtils {
 	}
 
 	/**
-	 * 对数据进行加密
+	 * 对数据进行加密, 对象先通过 {@link JsonCodecs#get()} 序列化为 JSON
 	 * @param content  要加密的数据
 	 * @param encryptKey 密钥
 	 * @return
@@ -86,13 +87,40 @@ public class AesEncryptUtils {
 	 */
 	public static String aesEncrypt(Object content, String encryptKey) {
 		try {
-			return base64Encode(aesEncryptToBytes(JSON.toJSONString(content), encryptKey));
+			return base64Encode(AesCipherEngine.of(encryptKey).encrypt(JsonCodecs.get().encode(content)));
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
 		}
 	}
 
+	/**
+	 * 生成二进制格式的签名信息, 比 JSON 格式短且解析更快, 用 AES-GCM 加密, 格式见 {@link SignTokenFormat}
+	 * @param signTime 签名时间戳
+	 * @param parameter 是否需要校验请求参数
+	 * @param params 参与校验的请求参数, 可以为 null
+	 * @param encryptKey 密钥
+	 * @return 可以直接放入 sign 请求头的签名
+	 * @throws Exception
+	 */
+	public static String aesEncryptSignToken(long signTime, boolean parameter, Map<String, ?> params, String encryptKey) throws Exception {
+		byte[] token = SignTokenFormat.encode(signTime, parameter, encryptKey, params);
+		return SignTokenFormat.seal(token, AesGcmEngine.of(encryptKey.trim()));
+	}
+
+	/**
+	 * 生成携带查询参数摘要的二进制签名信息, GET 请求按原始查询字符串的规范形式校验参数, 见 {@link CanonicalQuery}
+	 * @param signTime 签名时间戳
+	 * @param rawQuery 请求的原始查询字符串(未解码)
+	 * @param encryptKey 密钥
+	 * @return 可以直接放入 sign 请求头的签名
+	 * @throws Exception
+	 */
+	public static String aesEncryptSignToken(long signTime, String rawQuery, String encryptKey) throws Exception {
+		byte[] token = SignTokenFormat.encode(signTime, true, encryptKey, CanonicalQuery.digest(rawQuery), null);
+		return SignTokenFormat.seal(token, AesGcmEngine.of(encryptKey.trim()));
+	}
+
 	/**
 	 * 解密数据
 	 * @param encryptBytes
@@ -101,12 +129,109 @@ public class AesEncryptUtils {
 	 * @throws Exception
 	 */
 	public static String aesDecryptByBytes(byte[] encryptBytes, String decryptKey) throws Exception {
-		KeyGenerator kgen = KeyGenerator.getInstance("AES");
-		kgen.init(KEY_LENGTH);
-		Cipher cipher = Cipher.getInstance(ALGORITHMSTR);
-		cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(decryptKey.getBytes(), "AES"));
-		byte[] decryptBytes = cipher.doFinal(encryptBytes);
-		return new String(decryptBytes);
+		byte[] decryptBytes = AesCipherEngine.of(decryptKey).decrypt(encryptBytes);
+		return new String(decryptBytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 对加密数据 进行解密, BASE64 直接解码到当前线程的缓冲区并在其中原地解密, 不产生中间数组和字符串
+	 * 返回的缓冲区在当前线程下一次调用前有效, 调用方不能保留
+	 * @param encryptStr BASE64 编码的密文
+	 * @param decryptKey
+	 * @return 包含明文的堆缓冲区
+	 * @throws Exception
+	 */
+	public static ByteBuffer aesDecryptToBuffer(CharSequence encryptStr, String decryptKey) throws Exception {
+		ByteBuffer buffer = base64DecodeToBuffer(encryptStr);
+		aesDecryptInPlace(buffer, decryptKey);
+		return buffer;
+	}
+
+	/**
+	 * base64 解码到当前线程的缓冲区
+	 * 返回的缓冲区在当前线程下一次调用前有效, 调用方不能保留
+	 * @param base64Code
+	 * @return 包含解码数据的堆缓冲区
+	 */
+	public static ByteBuffer base64DecodeToBuffer(CharSequence base64Code) {
+		int capacity = Base64Utils.StreamDecoder.maxDecodedLength(base64Code.length());
+		byte[] scratch = SCRATCH.get();
+		if (scratch.length < capacity) {
+			scratch = new byte[capacity];
+			if (capacity <= SCRATCH_LIMIT) {
+				SCRATCH.set(scratch);
+			}
+		}
+		return ByteBuffer.wrap(scratch, 0, Base64Utils.decode(base64Code, scratch, 0));
+	}
+
+	/**
+	 * 在堆缓冲区中原地解密, 完成后缓冲区的剩余部分即为明文
+	 * @param buffer 密文
+	 * @param decryptKey
+	 * @throws Exception
+	 */
+	public static void aesDecryptInPlace(ByteBuffer buffer, String decryptKey) throws Exception {
+		aesDecryptInPlace(buffer, AesCipherEngine.of(decryptKey));
+	}
+
+	/**
+	 * 使用指定的加解密引擎原地解密缓冲区中剩余的数据, 解密后 limit 指向明文末尾
+	 * @param buffer 密文
+	 * @param engine 加解密引擎
+	 * @throws Exception
+	 */
+	public static void aesDecryptInPlace(ByteBuffer buffer, AesCipherEngine engine) throws Exception {
+		int offset = buffer.arrayOffset() + buffer.position();
+		int length = engine.decryptInPlace(buffer.array(), offset, buffer.remaining());
+		buffer.limit(buffer.position() + length);
+	}
+
+	/**
+	 * AES-GCM 加密, 格式见 {@link AesGcmEngine}
+	 * @param content  要加密的数据
+	 * @param encryptKey 密钥
+	 * @return BASE64 编码的 IV | 密文 | 认证标签
+	 * @throws Exception
+	 */
+	public static String aesGcmEncrypt(String content, String encryptKey) throws Exception {
+		return base64Encode(AesGcmEngine.of(encryptKey).encrypt(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * AES-GCM 解密, 密文被篡改时抛出 {@link javax.crypto.AEADBadTagException}
+	 * @param encryptStr BASE64 编码的 IV | 密文 | 认证标签
+	 * @param decryptKey 密钥
+	 * @return
+	 * @throws Exception
+	 */
+	public static String aesGcmDecrypt(CharSequence encryptStr, String decryptKey) throws Exception {
+		ByteBuffer buffer = base64DecodeToBuffer(encryptStr);
+		aesGcmDecryptInPlace(buffer, decryptKey);
+		return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * AES-GCM 加密 input 中剩余的数据并写入 output, 两者都可以是直接缓冲区
+	 * @param input 明文
+	 * @param output 输出, 剩余空间不能小于 {@link AesGcmEngine#getOutputSize(int)}
+	 * @param encryptKey 密钥
+	 * @return 写入的字节数
+	 * @throws Exception
+	 */
+	public static int aesGcmEncrypt(ByteBuffer input, ByteBuffer output, String encryptKey) throws Exception {
+		return AesGcmEngine.of(encryptKey).encrypt(input, output);
+	}
+
+	/**
+	 * AES-GCM 原地解密缓冲区中剩余的数据, 缓冲区可以是直接缓冲区, 解密后 position 不变, limit 指向明文末尾
+	 * @param buffer IV | 密文 | 认证标签
+	 * @param decryptKey 密钥
+	 * @return 明文长度
+	 * @throws Exception 格式错误或认证失败
+	 */
+	public static int aesGcmDecryptInPlace(ByteBuffer buffer, String decryptKey) throws Exception {
+		return AesGcmEngine.of(decryptKey).decryptInPlace(buffer);
 	}
 
 	/**
@@ -134,7 +259,7 @@ public class AesEncryptUtils {
 	 */
 	public static String aesDecrypt(Object encryptStr, String decryptKey) {
 		try {
-			return aesDecryptByBytes(base64Decode(JSON.toJSONString(encryptStr)), decryptKey);
+			return aesDecryptByBytes(base64Decode(JsonCodecs.get().encodeToString(encryptStr)), decryptKey);
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
@@ -0,0 +1,297 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/***
+ * AES-GCM 加解密引擎
+ *
+ * 密文格式: IV(12 字节) | 密文(与明文等长) | 认证标签(16 字节). 解密时校验认证标签, 密文被篡改会抛出 {@link AEADBadTagException},
+ * 不需要另外计算 HMAC.<br>
+ * 直接操作 ByteBuffer, 堆缓冲区和直接缓冲区(如 Netty 的缓冲区)都可以使用, 解密可以在原缓冲区中进行, 不复制密文.<br>
+ * 每个线程持有自己的 Cipher 和随机数生成器, GCM 每次加密都要换 IV, 所以每次调用都重新 init, 密钥扩展由 JDK 按密钥缓存.
+ * IV 随机生成, 同一密钥加密的消息数量应远小于 2^32.
+ * @author ljy
+ */
+public final class AesGcmEngine {
+
+    private static final String ALGORITHM = "AES";
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    /** IV 长度 */
+    public static final int IV_LENGTH = 12;
+
+    /** 认证标签长度 */
+    public static final int TAG_LENGTH = 16;
+
+    /** 密文比明文多出的字节数 */
+    public static final int OVERHEAD = IV_LENGTH + TAG_LENGTH;
+
+    /** 缓存的密钥数量上限, 达到后按二次机会(CLOCK)算法淘汰一个最近没有使用的密钥 */
+    private static final int MAX_CACHED_KEYS = 64;
+
+    private static final ConcurrentMap<String, AesGcmEngine> ENGINES = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(Context::new);
+
+    private final SecretKeySpec secretKey;
+
+    /** 上次淘汰之后是否被使用过 */
+    private volatile boolean referenced;
+
+    private AesGcmEngine(String secretKey) {
+        this(secretKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private AesGcmEngine(byte[] secretKey) {
+        this.secretKey = new SecretKeySpec(secretKey, ALGORITHM);
+    }
+
+    /**
+     * 获取密钥对应的加解密引擎
+     * @param secretKey 密钥
+     * @return
+     */
+    public static AesGcmEngine of(String secretKey) {
+        AesGcmEngine engine = ENGINES.get(secretKey);
+        if (engine != null) {
+            // 已经标记过时不再写, 避免热点密钥的缓存行在线程之间来回失效
+            if (!engine.referenced) {
+                engine.referenced = true;
+            }
+            return engine;
+        }
+        if (ENGINES.size() >= MAX_CACHED_KEYS) {
+            evictOne();
+        }
+        return ENGINES.computeIfAbsent(secretKey, AesGcmEngine::new);
+    }
+
+    /**
+     * 淘汰一个密钥: 遍历时清除经过的引擎的使用标记, 移除第一个没有被使用过的; 全部都被使用过时移除遍历到的第一个
+     */
+    private static void evictOne() {
+        Map.Entry<String, AesGcmEngine> first = null;
+        for (Map.Entry<String, AesGcmEngine> entry : ENGINES.entrySet()) {
+            AesGcmEngine candidate = entry.getValue();
+            if (!candidate.referenced) {
+                ENGINES.remove(entry.getKey(), candidate);
+                return;
+            }
+            candidate.referenced = false;
+            if (first == null) {
+                first = entry;
+            }
+        }
+        if (first != null) {
+            ENGINES.remove(first.getKey(), first.getValue());
+        }
+    }
+
+    /**
+     * 创建不进入共享缓存的加解密引擎, 由调用方自己持有
+     * @param secretKey 密钥
+     * @return
+     */
+    public static AesGcmEngine create(String secretKey) {
+        return new AesGcmEngine(secretKey);
+    }
+
+    /**
+     * 用原始密钥字节创建加解密引擎, 不进入共享缓存, 用于每条消息随机生成密钥的场景
+     * @param secretKey 16、24 或 32 字节的 AES 密钥
+     * @return
+     */
+    public static AesGcmEngine create(byte[] secretKey) {
+        return new AesGcmEngine(secretKey);
+    }
+
+    /**
+     * 加密 length 字节明文后的密文长度
+     * @param length 明文长度
+     * @return
+     */
+    public static int getOutputSize(int length) {
+        return length + OVERHEAD;
+    }
+
+    /**
+     * 加密
+     * @param data 明文
+     * @return IV | 密文 | 认证标签
+     * @throws GeneralSecurityException
+     */
+    public byte[] encrypt(byte[] data) throws GeneralSecurityException {
+        return encrypt(data, 0, data.length);
+    }
+
+    /**
+     * 加密
+     * @param data 明文
+     * @param offset 起始位置
+     * @param length 长度
+     * @return IV | 密文 | 认证标签
+     * @throws GeneralSecurityException
+     */
+    public byte[] encrypt(byte[] data, int offset, int length) throws GeneralSecurityException {
+        byte[] output = new byte[getOutputSize(length)];
+        encrypt(ByteBuffer.wrap(data, offset, length), ByteBuffer.wrap(output));
+        return output;
+    }
+
+    /**
+     * 加密 input 中剩余的数据并写入 output, 完成后 input 的 position 移到 limit, output 的 position 移过写入的数据
+     * @param input 明文
+     * @param output 密文输出, 剩余空间不能小于 {@link #getOutputSize(int)}
+     * @return 写入的字节数
+     * @throws GeneralSecurityException
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output) throws GeneralSecurityException {
+        return encrypt(input, output, null);
+    }
+
+    /**
+     * 加密 input 中剩余的数据并写入 output, aad 中剩余的数据作为附加认证数据, 不加密但受认证标签保护
+     * @param input 明文
+     * @param output 密文输出, 剩余空间不能小于 {@link #getOutputSize(int)}
+     * @param aad 附加认证数据, 可以为 null, 解密时必须提供相同的数据
+     * @return 写入的字节数
+     * @throws GeneralSecurityException
+     */
+    public int encrypt(ByteBuffer input, ByteBuffer output, ByteBuffer aad) throws GeneralSecurityException {
+        int length = getOutputSize(input.remaining());
+        if (output.remaining() < length) {
+            throw new ShortBufferException("输出缓冲区至少需要 " + length + " 字节");
+        }
+        Context context = CONTEXT.get();
+        byte[] iv = context.iv;
+        context.random.nextBytes(iv);
+        try {
+            Cipher cipher = init(context, Cipher.ENCRYPT_MODE);
+            if (aad != null) {
+                cipher.updateAAD(aad.duplicate());
+            }
+            output.put(iv);
+            return IV_LENGTH + cipher.doFinal(input, output);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // 出错后 Cipher 的状态不可信, 下次重新创建
+            CONTEXT.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * 解密
+     * @param data IV | 密文 | 认证标签
+     * @return 明文
+     * @throws GeneralSecurityException 格式错误或认证失败
+     */
+    public byte[] decrypt(byte[] data) throws GeneralSecurityException {
+        return decrypt(data, 0, data.length);
+    }
+
+    /**
+     * 解密
+     * @param data IV | 密文 | 认证标签
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 明文
+     * @throws GeneralSecurityException 格式错误或认证失败
+     */
+    public byte[] decrypt(byte[] data, int offset, int length) throws GeneralSecurityException {
+        return decrypt(data, offset, length, null, 0, 0);
+    }
+
+    /**
+     * 解密并校验附加认证数据
+     * @param data IV | 密文 | 认证标签
+     * @param offset 起始位置
+     * @param length 长度
+     * @param aad 加密时使用的附加认证数据, 可以为 null
+     * @param aadOffset 附加认证数据起始位置
+     * @param aadLength 附加认证数据长度
+     * @return 明文
+     * @throws GeneralSecurityException 格式错误或认证失败
+     */
+    public byte[] decrypt(byte[] data, int offset, int length, byte[] aad, int aadOffset, int aadLength)
+            throws GeneralSecurityException {
+        if (length < OVERHEAD) {
+            throw new AEADBadTagException("密文长度不足 " + OVERHEAD + " 字节");
+        }
+        Context context = CONTEXT.get();
+        System.arraycopy(data, offset, context.iv, 0, IV_LENGTH);
+        try {
+            Cipher cipher = init(context, Cipher.DECRYPT_MODE);
+            if (aad != null) {
+                cipher.updateAAD(aad, aadOffset, aadLength);
+            }
+            return cipher.doFinal(data, offset + IV_LENGTH, length - IV_LENGTH);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            CONTEXT.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * 原地解密缓冲区中剩余的数据, 明文从原来的 position 开始覆盖 IV 和密文, 解密后 limit 指向明文末尾.
+     * 缓冲区可以是堆缓冲区或直接缓冲区. 认证失败时缓冲区内容不可用
+     * @param buffer IV | 密文 | 认证标签
+     * @return 明文长度
+     * @throws GeneralSecurityException 格式错误或认证失败
+     */
+    public int decryptInPlace(ByteBuffer buffer) throws GeneralSecurityException {
+        int position = buffer.position();
+        if (buffer.remaining() < OVERHEAD) {
+            throw new AEADBadTagException("密文长度不足 " + OVERHEAD + " 字节");
+        }
+        Context context = CONTEXT.get();
+        byte[] iv = context.iv;
+        buffer.get(iv);
+        // 输入和输出共用同一块内存, JDK 的 GCM 解密先缓存密文, 认证通过后才写出明文
+        ByteBuffer output = buffer.duplicate();
+        output.position(position);
+        try {
+            int length = init(context, Cipher.DECRYPT_MODE).doFinal(buffer, output);
+            buffer.limit(position + length);
+            buffer.position(position);
+            return length;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            buffer.position(position);
+            CONTEXT.remove();
+            throw e;
+        }
+    }
+
+    private Cipher init(Context context, int mode) throws GeneralSecurityException {
+        context.cipher.init(mode, this.secretKey, new GCMParameterSpec(TAG_LENGTH * 8, context.iv));
+        return context.cipher;
+    }
+
+    /**
+     * 每个线程复用的 Cipher、IV 缓冲区和随机数生成器
+     */
+    private static final class Context {
+        private final Cipher cipher;
+        private final byte[] iv = new byte[IV_LENGTH];
+        private final SecureRandom random = new SecureRandom();
+
+        Context() {
+            try {
+                this.cipher = Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("初始化 " + TRANSFORMATION + " 失败", e);
+            }
+        }
+    }
+}
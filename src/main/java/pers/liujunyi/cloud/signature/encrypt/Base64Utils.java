@@ -1,13 +1,25 @@
 package pers.liujunyi.cloud.signature.encrypt;
 
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
 import org.apache.commons.codec.binary.Base64;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /***
  * Base64 加密解密 工具类
  * @author ljy
  */
+@Log4j2
 public class Base64Utils {
 
     /**
@@ -15,6 +27,16 @@ public class Base64Utils {
      */
     private static final int CACHE_SIZE = 1024;
 
+    /**
+     * 流式编解码每次处理的数据块大小(3和4的公倍数)
+     */
+    private static final int STREAM_CHUNK_SIZE = 3 * 4 * 16 * 1024;
+
+    /**
+     * 文件内存映射的窗口大小
+     */
+    private static final long MAPPED_WINDOW_SIZE = 64L * 1024 * 1024;
+
     /**
      * BASE64字符串解码为二进制数据
      *
@@ -26,6 +48,50 @@ public class Base64Utils {
         return Base64.decodeBase64(base64.getBytes());
     }
 
+    /**
+     * BASE64字符串直接解码到调用方提供的缓冲区, 不产生中间数组
+     *
+     * @param base64 BASE64字符串
+     * @param dst 输出, 剩余空间不能小于 {@link StreamDecoder#maxDecodedLength(int)}
+     * @param offset 输出起始位置
+     * @return 写入的字节数
+     * @throws IllegalArgumentException 非法的BASE64字符串
+     */
+    public static int decode(CharSequence base64, byte[] dst, int offset) {
+        byte[] table = StreamDecoder.DECODE_TABLE;
+        int position = offset;
+        int bits = 0;
+        int count = 0;
+        int length = base64.length();
+        for (int i = 0; i < length; i++) {
+            char c = base64.charAt(i);
+            byte value = c < table.length ? table[c] : -1;
+            if (value >= 0) {
+                bits = (bits << 6) | value;
+                if (++count == 4) {
+                    dst[position++] = (byte) (bits >> 16);
+                    dst[position++] = (byte) (bits >> 8);
+                    dst[position++] = (byte) bits;
+                    bits = 0;
+                    count = 0;
+                }
+            } else if (value == StreamDecoder.PAD) {
+                break;
+            } else if (value != StreamDecoder.WHITESPACE) {
+                throw new IllegalArgumentException("非法的 BASE64 字符: " + (int) c);
+            }
+        }
+        if (count == 2) {
+            dst[position++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            dst[position++] = (byte) (bits >> 10);
+            dst[position++] = (byte) (bits >> 2);
+        } else if (count == 1) {
+            throw new IllegalArgumentException("BASE64 数据长度不正确");
+        }
+        return position - offset;
+    }
+
     /**
      * 二进制数据编码为BASE64字符串
      *
@@ -39,7 +105,7 @@ public class Base64Utils {
 
     /**
      * 将文件编码为BASE64字符串
-     * 大文件慎用，可能会导致内存溢出
+     * 大文件慎用，可能会导致内存溢出, 大文件请使用 {@link #encodeFile(String, String)}
      *
      * @param filePath 文件绝对路径
      * @return
@@ -112,4 +178,430 @@ public class Base64Utils {
         out.close();
         in.close();
     }
+
+    /**
+     * 流式BASE64编码, 按固定大小的数据块处理, 内存占用与数据大小无关
+     *
+     * @param in 原始数据, 不会被关闭
+     * @param out BASE64输出, 不会被关闭
+     * @return 处理统计
+     * @throws IOException
+     */
+    public static TransferStats encode(InputStream in, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        StreamEncoder encoder = new StreamEncoder();
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        ByteBuffer encoded = ByteBuffer.allocate(StreamEncoder.maxEncodedLength(STREAM_CHUNK_SIZE));
+        long read = 0;
+        long written = 0;
+        int nRead;
+        while ((nRead = readFully(in, chunk)) > 0) {
+            read += nRead;
+            encoded.clear();
+            written += encoder.update(chunk, 0, nRead, encoded);
+            out.write(encoded.array(), 0, encoded.position());
+        }
+        encoded.clear();
+        written += encoder.finish(encoded);
+        out.write(encoded.array(), 0, encoded.position());
+        out.flush();
+        return new TransferStats(read, written, System.nanoTime() - start);
+    }
+
+    /**
+     * 流式BASE64解码, 按固定大小的数据块处理, 内存占用与数据大小无关
+     *
+     * @param in BASE64数据, 不会被关闭
+     * @param out 解码输出, 不会被关闭
+     * @return 处理统计
+     * @throws IOException
+     */
+    public static TransferStats decode(InputStream in, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        StreamDecoder decoder = new StreamDecoder();
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        byte[] decoded = new byte[StreamDecoder.maxDecodedLength(STREAM_CHUNK_SIZE)];
+        long read = 0;
+        long written = 0;
+        int nRead;
+        while ((nRead = readFully(in, chunk)) > 0) {
+            read += nRead;
+            int length = decoder.update(chunk, 0, nRead, decoded, 0);
+            out.write(decoded, 0, length);
+            written += length;
+        }
+        int length = decoder.finish(decoded, 0);
+        out.write(decoded, 0, length);
+        out.flush();
+        return new TransferStats(read, written + length, System.nanoTime() - start);
+    }
+
+    /**
+     * 将文件编码为BASE64文件, 源文件按窗口内存映射后分块编码, 适合几百MB以上的大文件
+     *
+     * @param srcPath 源文件路径
+     * @param destPath BASE64文件路径
+     * @return 处理统计
+     * @throws IOException
+     */
+    public static TransferStats encodeFile(String srcPath, String destPath) throws IOException {
+        long start = System.nanoTime();
+        StreamEncoder encoder = new StreamEncoder();
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        ByteBuffer encoded = ByteBuffer.allocate(StreamEncoder.maxEncodedLength(STREAM_CHUNK_SIZE));
+        long read = 0;
+        long written = 0;
+        try (FileChannel src = FileChannel.open(Paths.get(srcPath), StandardOpenOption.READ);
+             FileChannel dest = openDestination(destPath)) {
+            long size = src.size();
+            while (read < size) {
+                MappedByteBuffer window = src.map(FileChannel.MapMode.READ_ONLY, read, Math.min(MAPPED_WINDOW_SIZE, size - read));
+                while (window.hasRemaining()) {
+                    int length = Math.min(chunk.length, window.remaining());
+                    window.get(chunk, 0, length);
+                    encoded.clear();
+                    encoder.update(chunk, 0, length, encoded);
+                    written += writeFully(dest, encoded.array(), encoded.position());
+                }
+                read += window.capacity();
+            }
+            encoded.clear();
+            encoder.finish(encoded);
+            written += writeFully(dest, encoded.array(), encoded.position());
+        }
+        TransferStats stats = new TransferStats(read, written, System.nanoTime() - start);
+        log.info("BASE64 编码文件 " + srcPath + " -> " + destPath + ": " + stats);
+        return stats;
+    }
+
+    /**
+     * 将BASE64文件解码为文件, 源文件按窗口内存映射后分块解码, 适合几百MB以上的大文件
+     *
+     * @param srcPath BASE64文件路径
+     * @param destPath 解码文件路径
+     * @return 处理统计
+     * @throws IOException
+     */
+    public static TransferStats decodeFile(String srcPath, String destPath) throws IOException {
+        long start = System.nanoTime();
+        StreamDecoder decoder = new StreamDecoder();
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        byte[] decoded = new byte[StreamDecoder.maxDecodedLength(STREAM_CHUNK_SIZE)];
+        long read = 0;
+        long written = 0;
+        try (FileChannel src = FileChannel.open(Paths.get(srcPath), StandardOpenOption.READ);
+             FileChannel dest = openDestination(destPath)) {
+            long size = src.size();
+            while (read < size) {
+                MappedByteBuffer window = src.map(FileChannel.MapMode.READ_ONLY, read, Math.min(MAPPED_WINDOW_SIZE, size - read));
+                while (window.hasRemaining()) {
+                    int length = Math.min(chunk.length, window.remaining());
+                    window.get(chunk, 0, length);
+                    int decodedLength = decoder.update(chunk, 0, length, decoded, 0);
+                    written += writeFully(dest, decoded, decodedLength);
+                }
+                read += window.capacity();
+            }
+            int decodedLength = decoder.finish(decoded, 0);
+            written += writeFully(dest, decoded, decodedLength);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("BASE64 文件 " + srcPath + " 格式不正确", e);
+        }
+        TransferStats stats = new TransferStats(read, written, System.nanoTime() - start);
+        log.info("BASE64 解码文件 " + srcPath + " -> " + destPath + ": " + stats);
+        return stats;
+    }
+
+    private static FileChannel openDestination(String destPath) throws IOException {
+        Path dest = Paths.get(destPath);
+        if (dest.getParent() != null) {
+            Files.createDirectories(dest.getParent());
+        }
+        return FileChannel.open(dest, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * 写出 data 中 [0, length) 的数据
+     */
+    private static int writeFully(FileChannel channel, byte[] data, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+
+    /**
+     * 尽量读满 buffer, 返回 0 表示已读完
+     */
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        int nRead;
+        while (total < buffer.length && (nRead = in.read(buffer, total, buffer.length - total)) != -1) {
+            total += nRead;
+        }
+        return total;
+    }
+
+    /**
+     * 流式编解码的处理统计
+     */
+    @Getter
+    public static final class TransferStats {
+        /** 读取的字节数 */
+        private final long bytesRead;
+        /** 写出的字节数 */
+        private final long bytesWritten;
+        /** 耗时(纳秒) */
+        private final long elapsedNanos;
+
+        public TransferStats(long bytesRead, long bytesWritten, long elapsedNanos) {
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * 按读取字节数计算的吞吐量(MB/s)
+         * @return
+         */
+        public double getThroughput() {
+            return this.elapsedNanos == 0 ? 0 : this.bytesRead / (1024.0 * 1024.0) / (this.elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("读取 %d 字节, 写出 %d 字节, 耗时 %d ms, 吞吐量 %.2f MB/s",
+                    this.bytesRead, this.bytesWritten, this.elapsedNanos / 1000000, getThroughput());
+        }
+    }
+
+    /**
+     * 增量 BASE64 解码器
+     *
+     * 数据可以任意切分后分多次传入, 不足4个字符的部分留到下一次; 兼容标准和 URL 安全字母表, 忽略空白字符.
+     * 非线程安全, 每个数据流使用一个实例.
+     */
+    public static final class StreamDecoder {
+
+        static final byte WHITESPACE = -2;
+
+        static final byte PAD = -3;
+
+        static final byte[] DECODE_TABLE = new byte[256];
+
+        static {
+            Arrays.fill(DECODE_TABLE, (byte) -1);
+            String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+            for (int i = 0; i < alphabet.length(); i++) {
+                DECODE_TABLE[alphabet.charAt(i)] = (byte) i;
+            }
+            DECODE_TABLE['-'] = 62;
+            DECODE_TABLE['_'] = 63;
+            DECODE_TABLE[' '] = WHITESPACE;
+            DECODE_TABLE['\t'] = WHITESPACE;
+            DECODE_TABLE['\r'] = WHITESPACE;
+            DECODE_TABLE['\n'] = WHITESPACE;
+            DECODE_TABLE['='] = PAD;
+        }
+
+        private int bits;
+
+        private int count;
+
+        private boolean padded;
+
+        /**
+         * encodedLength 个字符最多解码出的字节数(含上一次留下的字符)
+         * @param encodedLength 编码长度
+         * @return
+         */
+        public static int maxDecodedLength(int encodedLength) {
+            return encodedLength / 4 * 3 + 3;
+        }
+
+        /**
+         * 解码 src 中剩余的全部字符
+         * @param src BASE64 字符
+         * @param dst 输出, 剩余空间不能小于 {@link #maxDecodedLength(int)}
+         * @param offset 输出起始位置
+         * @return 写入的字节数
+         */
+        public int update(ByteBuffer src, byte[] dst, int offset) {
+            int position = offset;
+            while (src.hasRemaining()) {
+                position = accept(src.get(), dst, position);
+            }
+            return position - offset;
+        }
+
+        /**
+         * 解码 src 中指定区间的字符
+         * @param src BASE64 字符
+         * @param srcOffset 起始位置
+         * @param length 长度
+         * @param dst 输出, 剩余空间不能小于 {@link #maxDecodedLength(int)}
+         * @param offset 输出起始位置
+         * @return 写入的字节数
+         */
+        public int update(byte[] src, int srcOffset, int length, byte[] dst, int offset) {
+            int position = offset;
+            for (int i = srcOffset; i < srcOffset + length; i++) {
+                position = accept(src[i], dst, position);
+            }
+            return position - offset;
+        }
+
+        /**
+         * 结束解码, 输出没有补齐 = 的剩余字节, 之后解码器可以重新使用
+         * @param dst 输出, 剩余空间不能小于 2
+         * @param offset 输出起始位置
+         * @return 写入的字节数
+         */
+        public int finish(byte[] dst, int offset) {
+            int written = this.padded ? 0 : flush(dst, offset);
+            this.bits = 0;
+            this.count = 0;
+            this.padded = false;
+            return written;
+        }
+
+        private int accept(byte b, byte[] dst, int position) {
+            byte value = DECODE_TABLE[b & 0xff];
+            if (value >= 0) {
+                if (this.padded) {
+                    throw new IllegalArgumentException("BASE64 填充字符之后还有数据");
+                }
+                this.bits = (this.bits << 6) | value;
+                if (++this.count == 4) {
+                    dst[position++] = (byte) (this.bits >> 16);
+                    dst[position++] = (byte) (this.bits >> 8);
+                    dst[position++] = (byte) this.bits;
+                    this.bits = 0;
+                    this.count = 0;
+                }
+                return position;
+            }
+            if (value == WHITESPACE) {
+                return position;
+            }
+            if (value == PAD) {
+                if (!this.padded) {
+                    position += flush(dst, position);
+                    this.padded = true;
+                }
+                return position;
+            }
+            throw new IllegalArgumentException("非法的 BASE64 字符: " + (b & 0xff));
+        }
+
+        private int flush(byte[] dst, int position) {
+            int written;
+            switch (this.count) {
+                case 0:
+                    written = 0;
+                    break;
+                case 2:
+                    dst[position] = (byte) (this.bits >> 4);
+                    written = 1;
+                    break;
+                case 3:
+                    dst[position] = (byte) (this.bits >> 10);
+                    dst[position + 1] = (byte) (this.bits >> 2);
+                    written = 2;
+                    break;
+                default:
+                    throw new IllegalArgumentException("BASE64 数据长度不正确");
+            }
+            this.bits = 0;
+            this.count = 0;
+            return written;
+        }
+    }
+
+    /**
+     * 增量 BASE64 编码器
+     *
+     * 数据可以任意切分后分多次传入, 不足3个字节的部分留到下一次, 输出标准字母表且不换行.
+     * 非线程安全, 每个数据流使用一个实例.
+     */
+    public static final class StreamEncoder {
+
+        private static final byte[] ALPHABET =
+                "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+        private static final byte PAD = '=';
+
+        private final byte[] carry = new byte[2];
+
+        private int carryLength;
+
+        /**
+         * length 个字节最多编码出的字符数(含上一次留下的字节和结束时的填充)
+         * @param length 数据长度
+         * @return
+         */
+        public static int maxEncodedLength(int length) {
+            return (length + 2) / 3 * 4 + 4;
+        }
+
+        /**
+         * 编码 src 中指定区间的数据
+         * @param src 数据
+         * @param offset 起始位置
+         * @param length 长度
+         * @param dst 输出, 剩余空间不能小于 {@link #maxEncodedLength(int)}
+         * @return 写入的字节数
+         */
+        public int update(byte[] src, int offset, int length, ByteBuffer dst) {
+            int start = dst.position();
+            int index = offset;
+            int end = offset + length;
+            // 先补齐上一次留下的字节
+            if (this.carryLength > 0) {
+                while (this.carryLength < 2 && index < end) {
+                    this.carry[this.carryLength++] = src[index++];
+                }
+                if (index == end) {
+                    return dst.position() - start;
+                }
+                encode(this.carry[0], this.carry[1], src[index++], dst);
+                this.carryLength = 0;
+            }
+            while (end - index >= 3) {
+                encode(src[index], src[index + 1], src[index + 2], dst);
+                index += 3;
+            }
+            while (index < end) {
+                this.carry[this.carryLength++] = src[index++];
+            }
+            return dst.position() - start;
+        }
+
+        /**
+         * 结束编码, 输出剩余字节和填充字符, 之后编码器可以重新使用
+         * @param dst 输出, 剩余空间不能小于 4
+         * @return 写入的字节数
+         */
+        public int finish(ByteBuffer dst) {
+            int written = 0;
+            if (this.carryLength == 1) {
+                int bits = (this.carry[0] & 0xff) << 16;
+                dst.put(ALPHABET[bits >>> 18]).put(ALPHABET[(bits >>> 12) & 0x3f]).put(PAD).put(PAD);
+                written = 4;
+            } else if (this.carryLength == 2) {
+                int bits = (this.carry[0] & 0xff) << 16 | (this.carry[1] & 0xff) << 8;
+                dst.put(ALPHABET[bits >>> 18]).put(ALPHABET[(bits >>> 12) & 0x3f]).put(ALPHABET[(bits >>> 6) & 0x3f]).put(PAD);
+                written = 4;
+            }
+            this.carryLength = 0;
+            return written;
+        }
+
+        private static void encode(byte b0, byte b1, byte b2, ByteBuffer dst) {
+            int bits = (b0 & 0xff) << 16 | (b1 & 0xff) << 8 | (b2 & 0xff);
+            dst.put(ALPHABET[bits >>> 18]).put(ALPHABET[(bits >>> 12) & 0x3f])
+                    .put(ALPHABET[(bits >>> 6) & 0x3f]).put(ALPHABET[bits & 0x3f]);
+        }
+    }
 }
@@ -0,0 +1,247 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/***
+ * 查询参数规范化
+ *
+ * 规范形式: 每个 名称=值 先做百分号解码, 再按 RFC 3986 重新编码(除 A-Z a-z 0-9 - . _ ~ 以外的字节都编码为 %XX, 十六进制大写),
+ * 然后按 名称=值 的字节顺序排序, 用 &amp; 连接. 没有 = 的参数按值为空处理, 空参数被忽略.<br>
+ * 原始查询字符串只扫描一次, 解码和重新编码同时进行, 结果写入当前线程的缓冲区, 不创建 Map 和中间字符串.
+ * @author ljy
+ */
+public final class CanonicalQuery {
+
+    /** SHA-256 摘要长度 */
+    public static final int DIGEST_LENGTH = 32;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private CanonicalQuery() { }
+
+    /**
+     * 规范形式
+     * @param rawQuery 原始查询字符串(未解码), 可以为 null
+     * @return
+     */
+    public static String canonicalize(String rawQuery) {
+        StringBuilder builder = new StringBuilder(rawQuery == null ? 0 : rawQuery.length());
+        appendTo(rawQuery, builder);
+        return builder.toString();
+    }
+
+    /**
+     * 把规范形式追加到 builder
+     * @param rawQuery 原始查询字符串(未解码), 可以为 null
+     * @param builder
+     */
+    public static void appendTo(String rawQuery, StringBuilder builder) {
+        Scratch scratch = scan(rawQuery);
+        for (int i = 0; i < scratch.count; i++) {
+            if (i > 0) {
+                builder.append('&');
+            }
+            int pair = scratch.order[i];
+            // 规范形式只包含 ASCII 字符
+            for (int p = scratch.starts[pair], end = scratch.ends[pair]; p < end; p++) {
+                builder.append((char) scratch.bytes[p]);
+            }
+        }
+    }
+
+    /**
+     * 规范形式的 SHA-256 摘要
+     * @param rawQuery 原始查询字符串(未解码), 可以为 null
+     * @return
+     */
+    public static byte[] digest(String rawQuery) {
+        Scratch scratch = scan(rawQuery);
+        MessageDigest digest = scratch.digest;
+        digest.reset();
+        for (int i = 0; i < scratch.count; i++) {
+            if (i > 0) {
+                digest.update((byte) '&');
+            }
+            int pair = scratch.order[i];
+            digest.update(scratch.bytes, scratch.starts[pair], scratch.ends[pair] - scratch.starts[pair]);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 规范形式的摘要是否与签名信息中的一致, 比较时间与摘要内容无关
+     * @param rawQuery 原始查询字符串(未解码), 可以为 null
+     * @param expected 签名信息中的摘要
+     * @return
+     */
+    public static boolean matches(String rawQuery, byte[] expected) {
+        return expected != null && MessageDigest.isEqual(digest(rawQuery), expected);
+    }
+
+    /**
+     * 扫描原始查询字符串, 每个参数的规范形式写入缓冲区, 并按字节顺序排好
+     */
+    private static Scratch scan(String rawQuery) {
+        Scratch scratch = SCRATCH.get();
+        scratch.count = 0;
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return scratch;
+        }
+        int length = rawQuery.length();
+        // 未编码的非 ASCII 字符最多 3 个 UTF-8 字节, 每个字节最多编码为 3 个字符; 补上的 = 每个参数最多 1 个
+        scratch.ensureBytes(length * 9 + length / 2 + 1);
+        byte[] bytes = scratch.bytes;
+        int position = 0;
+        int start = 0;
+        boolean hasEquals = false;
+        int i = 0;
+        while (i <= length) {
+            char c = i < length ? rawQuery.charAt(i) : '&';
+            if (c == '&') {
+                if (position > start) {
+                    if (!hasEquals) {
+                        bytes[position++] = '=';
+                    }
+                    scratch.add(start, position);
+                }
+                start = position;
+                hasEquals = false;
+                i++;
+            } else if (c == '=' && !hasEquals) {
+                bytes[position++] = '=';
+                hasEquals = true;
+                i++;
+            } else if (c == '%' && isHex(rawQuery, i + 1)) {
+                position = encode(bytes, position, hex(rawQuery.charAt(i + 1)) << 4 | hex(rawQuery.charAt(i + 2)));
+                i += 3;
+            } else if (c < 0x80) {
+                position = encode(bytes, position, c);
+                i++;
+            } else {
+                // 未编码的非 ASCII 字符按 UTF-8 编码
+                int end = Character.isHighSurrogate(c) && i + 1 < length ? i + 2 : i + 1;
+                for (byte b : rawQuery.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                    position = encode(bytes, position, b & 0xFF);
+                }
+                i = end;
+            }
+        }
+        scratch.sort();
+        return scratch;
+    }
+
+    private static int encode(byte[] bytes, int position, int b) {
+        if ((b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9')
+                || b == '-' || b == '.' || b == '_' || b == '~') {
+            bytes[position++] = (byte) b;
+        } else {
+            bytes[position++] = '%';
+            bytes[position++] = (byte) HEX[b >>> 4];
+            bytes[position++] = (byte) HEX[b & 0xF];
+        }
+        return position;
+    }
+
+    private static boolean isHex(String text, int index) {
+        return index + 1 < text.length() && hex(text.charAt(index)) >= 0 && hex(text.charAt(index + 1)) >= 0;
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * 每个线程复用的缓冲区: 规范形式的字节, 每个参数的起止位置和排序后的下标
+     */
+    private static final class Scratch {
+        private final MessageDigest digest;
+        private byte[] bytes = new byte[512];
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int[] order = new int[16];
+        private int[] merge = new int[16];
+        private int count;
+
+        Scratch() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void ensureBytes(int size) {
+            if (size > this.bytes.length) {
+                this.bytes = new byte[size];
+            }
+        }
+
+        void add(int start, int end) {
+            if (this.count == this.starts.length) {
+                int size = this.count * 2;
+                this.starts = Arrays.copyOf(this.starts, size);
+                this.ends = Arrays.copyOf(this.ends, size);
+                this.order = new int[size];
+                this.merge = new int[size];
+            }
+            this.starts[this.count] = start;
+            this.ends[this.count] = end;
+            this.count++;
+        }
+
+        /**
+         * 按字节顺序归并排序参数下标
+         */
+        void sort() {
+            for (int i = 0; i < this.count; i++) {
+                this.order[i] = i;
+            }
+            for (int width = 1; width < this.count; width <<= 1) {
+                for (int low = 0; low < this.count; low += width << 1) {
+                    int middle = Math.min(low + width, this.count);
+                    int high = Math.min(low + (width << 1), this.count);
+                    int left = low;
+                    int right = middle;
+                    for (int k = low; k < high; k++) {
+                        if (left < middle && (right >= high || this.compare(this.order[left], this.order[right]) <= 0)) {
+                            this.merge[k] = this.order[left++];
+                        } else {
+                            this.merge[k] = this.order[right++];
+                        }
+                    }
+                }
+                int[] swap = this.order;
+                this.order = this.merge;
+                this.merge = swap;
+            }
+        }
+
+        private int compare(int a, int b) {
+            int i = this.starts[a];
+            int j = this.starts[b];
+            int endA = this.ends[a];
+            int endB = this.ends[b];
+            while (i < endA && j < endB) {
+                int diff = (this.bytes[i++] & 0xFF) - (this.bytes[j++] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return (endA - i) - (endB - j);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/***
+ * HMAC-SHA256 签名引擎
+ *
+ * 与 {@link AesCipherEngine} 相同, 每个密钥只派生一次 SecretKeySpec, 每个线程持有已初始化好的 Mac 并重复使用.<br>
+ * Mac 在 doFinal 之后会自动回到 init 之后的状态, 所以同一线程可以直接复用.
+ * @author ljy
+ */
+public final class HmacSignEngine {
+
+    public static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec secretKey;
+
+    private final ThreadLocal<Mac> mac;
+
+    private HmacSignEngine(String secretKey) {
+        this.secretKey = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::initMac);
+    }
+
+    /**
+     * 创建签名引擎, 由调用方自己持有
+     * @param secretKey 密钥
+     * @return
+     */
+    public static HmacSignEngine create(String secretKey) {
+        return new HmacSignEngine(secretKey);
+    }
+
+    /**
+     * 计算签名
+     * @param data 待签名数据
+     * @return 32 字节的签名
+     */
+    public byte[] sign(byte[] data) {
+        return sign(data, 0, data.length);
+    }
+
+    /**
+     * 计算签名
+     * @param data 待签名数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 32 字节的签名
+     */
+    public byte[] sign(byte[] data, int offset, int length) {
+        Mac mac = this.mac.get();
+        mac.update(data, offset, length);
+        return mac.doFinal();
+    }
+
+    /**
+     * 校验签名, 比较时间与签名内容无关
+     * @param data 待签名数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @param expected 客户端提交的签名
+     * @return
+     */
+    public boolean verify(byte[] data, int offset, int length, byte[] expected) {
+        return MessageDigest.isEqual(sign(data, offset, length), expected);
+    }
+
+    private Mac initMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(this.secretKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化 " + ALGORITHM + " 失败", e);
+        }
+    }
+}
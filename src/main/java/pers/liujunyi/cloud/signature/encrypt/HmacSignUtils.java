@@ -0,0 +1,113 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/***
+ * HMAC 请求签名工具类
+ *
+ * 客户端对规范请求计算 HMAC-SHA256, 放入 sign 请求头: sign=HMAC-SHA256 BASE64(签名),
+ * 同时通过 signTime 请求头提交签名时间戳, 有请求体时通过 bodyDigest 请求头提交 BASE64(SHA-256(请求体)).<br>
+ * 规范请求为以下各项用换行符连接:
+ * <pre>
+ * 请求方法(大写)
+ * 路径(原始编码)
+ * 查询参数(规范形式, 见 {@link CanonicalQuery})
+ * signTime
+ * bodyDigest(没有时为空)
+ * </pre>
+ * 密钥只用来计算签名, 不会出现在请求中.
+ * @author ljy
+ */
+public final class HmacSignUtils {
+
+    /** sign 请求头中的签名方式 */
+    public static final String SCHEME = "HMAC-SHA256";
+
+    /** 签名时间戳请求头 */
+    public static final String SIGN_TIME_HEADER = "signTime";
+
+    /** 请求体摘要请求头 */
+    public static final String BODY_DIGEST_HEADER = "bodyDigest";
+
+    private static final String SCHEME_PREFIX = SCHEME + " ";
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private HmacSignUtils() { }
+
+    /**
+     * sign 请求头是否为 HMAC 签名
+     * @param sign sign 请求头
+     * @return
+     */
+    public static boolean isHmac(String sign) {
+        return sign != null && sign.regionMatches(true, 0, SCHEME_PREFIX, 0, SCHEME_PREFIX.length());
+    }
+
+    /**
+     * 取出 sign 请求头中的签名
+     * @param sign sign 请求头
+     * @return 签名格式错误时返回 null
+     */
+    public static byte[] parseSignature(String sign) {
+        try {
+            byte[] signature = Base64.getDecoder().decode(sign.substring(SCHEME_PREFIX.length()).trim());
+            return signature.length == 32 ? signature : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 构建规范请求
+     * @param method 请求方法
+     * @param rawPath 路径(原始编码)
+     * @param rawQuery 查询参数(原始编码, 未解码), 可以为 null
+     * @param signTime 签名时间戳
+     * @param bodyDigest 请求体摘要, 可以为 null
+     * @return UTF-8 编码的规范请求
+     */
+    public static byte[] canonicalRequest(String method, String rawPath, String rawQuery, long signTime, String bodyDigest) {
+        StringBuilder builder = new StringBuilder(64 + rawPath.length() + (rawQuery == null ? 0 : rawQuery.length()));
+        builder.append(method.toUpperCase()).append('\n')
+                .append(rawPath).append('\n');
+        CanonicalQuery.appendTo(rawQuery, builder);
+        builder.append('\n')
+                .append(signTime).append('\n')
+                .append(bodyDigest == null ? "" : bodyDigest.trim());
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 生成 sign 请求头
+     * @param method 请求方法
+     * @param rawPath 路径(原始编码)
+     * @param rawQuery 查询参数(原始编码), 可以为 null
+     * @param signTime 签名时间戳
+     * @param body 请求体, 可以为 null
+     * @param secretKey 密钥
+     * @return
+     */
+    public static String sign(String method, String rawPath, String rawQuery, long signTime, byte[] body, String secretKey) {
+        byte[] canonical = canonicalRequest(method, rawPath, rawQuery, signTime, body == null ? null : bodyDigest(body));
+        return SCHEME_PREFIX + Base64.getEncoder().encodeToString(HmacSignEngine.create(secretKey.trim()).sign(canonical));
+    }
+
+    /**
+     * 请求体摘要 BASE64(SHA-256(请求体))
+     * @param body 请求体
+     * @return
+     */
+    public static String bodyDigest(byte[] body) {
+        return Base64.getEncoder().encodeToString(SHA256.get().digest(body));
+    }
+}
@@ -0,0 +1,182 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import org.apache.commons.codec.binary.Base64;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/***
+ * RSA 批量签名/验签工具
+ *
+ * 密钥只解析一次, 数据按 64 条一组拆分为 fork-join 子任务并行处理,
+ * 每个工作线程复用自己的 Signature 对象. 签名算法与 {@link RsaEncryptUtils} 一致.
+ * @author ljy
+ */
+public final class RsaBatchUtils {
+
+    /** 每个子任务最多处理的条数, 必须是 64 的倍数, 保证每个子任务只写自己的结果字 */
+    private static final int BATCH_THRESHOLD = 64;
+
+    private RsaBatchUtils() { }
+
+    /**
+     * 批量校验数字签名, 使用公共 ForkJoinPool
+     * @param data 原始数据
+     * @param signs 与 data 一一对应的数字签名(BASE64编码)
+     * @param publicKey 公钥(BASE64编码)
+     * @return 第 i 位为 true 表示第 i 条签名校验通过
+     */
+    public static BitSet verifyBatch(List<String> data, List<String> signs, String publicKey) {
+        return verifyBatch(data, signs, publicKey, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 批量校验数字签名
+     * @param data 原始数据
+     * @param signs 与 data 一一对应的数字签名(BASE64编码)
+     * @param publicKey 公钥(BASE64编码)
+     * @param pool 执行校验的线程池
+     * @return 第 i 位为 true 表示第 i 条签名校验通过, 签名格式错误的记为不通过
+     */
+    public static BitSet verifyBatch(List<String> data, List<String> signs, String publicKey, ForkJoinPool pool) {
+        if (data.size() != signs.size()) {
+            throw new IllegalArgumentException("数据条数 " + data.size() + " 与签名条数 " + signs.size() + " 不一致");
+        }
+        PublicKey key = RsaKeyRegistry.getPublicKey(publicKey);
+        String[] dataArray = data.toArray(new String[0]);
+        String[] signArray = signs.toArray(new String[0]);
+        long[] words = new long[(dataArray.length + 63) >>> 6];
+        pool.invoke(new VerifyTask(key, dataArray, signArray, words, 0, dataArray.length));
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * 批量生成数字签名, 使用公共 ForkJoinPool
+     * @param data 待签名的数据
+     * @param privateKey 私钥(BASE64编码)
+     * @return 与 data 一一对应的签名(BASE64编码)
+     */
+    public static String[] signBatch(List<String> data, String privateKey) {
+        return signBatch(data, privateKey, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 批量生成数字签名
+     * @param data 待签名的数据
+     * @param privateKey 私钥(BASE64编码)
+     * @param pool 执行签名的线程池
+     * @return 与 data 一一对应的签名(BASE64编码)
+     */
+    public static String[] signBatch(List<String> data, String privateKey, ForkJoinPool pool) {
+        PrivateKey key = RsaKeyRegistry.getPrivateKey(privateKey);
+        String[] dataArray = data.toArray(new String[0]);
+        String[] result = new String[dataArray.length];
+        pool.invoke(new SignTask(key, dataArray, result, 0, dataArray.length));
+        return result;
+    }
+
+    /**
+     * 按 64 条对齐拆分区间的中点
+     */
+    private static int split(int from, int to) {
+        return from + ((((to - from) >>> 1) + 63) & ~63);
+    }
+
+    /**
+     * 校验 [from, to) 区间的签名
+     */
+    private static final class VerifyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final PublicKey key;
+        private final String[] data;
+        private final String[] signs;
+        private final long[] words;
+        private final int from;
+        private final int to;
+
+        VerifyTask(PublicKey key, String[] data, String[] signs, long[] words, int from, int to) {
+            this.key = key;
+            this.data = data;
+            this.signs = signs;
+            this.words = words;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > BATCH_THRESHOLD) {
+                int mid = split(this.from, this.to);
+                invokeAll(new VerifyTask(this.key, this.data, this.signs, this.words, this.from, mid),
+                        new VerifyTask(this.key, this.data, this.signs, this.words, mid, this.to));
+                return;
+            }
+            Signature signature = RsaEncryptUtils.threadSignature();
+            boolean initialized = false;
+            for (int i = this.from; i < this.to; i++) {
+                boolean verified;
+                try {
+                    if (!initialized) {
+                        signature.initVerify(this.key);
+                        initialized = true;
+                    }
+                    signature.update(this.data[i].getBytes());
+                    // verify 之后 Signature 回到 initVerify 之后的状态, 可以直接校验下一条
+                    verified = signature.verify(Base64.decodeBase64(this.signs[i].getBytes()));
+                } catch (GeneralSecurityException | RuntimeException e) {
+                    verified = false;
+                    initialized = false;
+                }
+                if (verified) {
+                    this.words[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成 [from, to) 区间的签名
+     */
+    private static final class SignTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final PrivateKey key;
+        private final String[] data;
+        private final String[] result;
+        private final int from;
+        private final int to;
+
+        SignTask(PrivateKey key, String[] data, String[] result, int from, int to) {
+            this.key = key;
+            this.data = data;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > BATCH_THRESHOLD) {
+                int mid = split(this.from, this.to);
+                invokeAll(new SignTask(this.key, this.data, this.result, this.from, mid),
+                        new SignTask(this.key, this.data, this.result, mid, this.to));
+                return;
+            }
+            Signature signature = RsaEncryptUtils.threadSignature();
+            try {
+                signature.initSign(this.key);
+                for (int i = this.from; i < this.to; i++) {
+                    signature.update(this.data[i].getBytes());
+                    this.result[i] = new String(Base64.encodeBase64(signature.sign()));
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("批量签名失败", e);
+            }
+        }
+    }
+}
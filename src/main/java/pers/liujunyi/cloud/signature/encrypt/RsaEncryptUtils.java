@@ -5,12 +5,11 @@ import org.apache.commons.codec.binary.Base64;
 
 import javax.crypto.Cipher;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.security.spec.X509EncodedKeySpec;
 
 
 /**
@@ -48,14 +47,34 @@ public class RsaEncryptUtils {
      */
     private static final int MAX_DECRYPT_BLOCK = 128;
 
-    private static KeyFactory keyFactory = null;
-
-    static {
+    /**
+     * 每个线程复用的签名对象, 每次使用前都会重新 init
+     */
+    private static final ThreadLocal<Signature> SIGNATURE = ThreadLocal.withInitial(() -> {
         try {
-            keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
+            return Signature.getInstance(SIGNATURE_ALGORITHM);
         } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
+            throw new IllegalStateException("初始化 " + SIGNATURE_ALGORITHM + " 失败", e);
+        }
+    });
+
+    /**
+     * 每个线程复用的RSA Cipher, 每次使用前都会重新 init
+     */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(KEY_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化 " + KEY_ALGORITHM + " Cipher 失败", e);
         }
+    });
+
+    /**
+     * 当前线程复用的签名对象, 使用前必须重新 init
+     * @return
+     */
+    static Signature threadSignature() {
+        return SIGNATURE.get();
     }
 
 
@@ -86,8 +105,8 @@ public class RsaEncryptUtils {
      * @throws Exception
      */
     public static String sign(String data, String privateKey) throws Exception {
-        PrivateKey  key = getPrivateKeyFromBase64KeyEncodeStr(privateKey);
-        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+        PrivateKey  key = RsaKeyRegistry.getPrivateKey(privateKey);
+        Signature signature = SIGNATURE.get();
         signature.initSign(key);
         signature.update(data.getBytes());
         return new String(Base64.encodeBase64(signature.sign()));
@@ -106,8 +125,8 @@ public class RsaEncryptUtils {
      */
     public static boolean verify(String data, String publicKey, String sign)
             throws Exception {
-        PublicKey  key = getPublicKeyFromBase64KeyEncodeStr(publicKey);
-        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+        PublicKey  key = RsaKeyRegistry.getPublicKey(publicKey);
+        Signature signature = SIGNATURE.get();
         signature.initVerify(key);
         signature.update(data.getBytes());
         return signature.verify(Base64.decodeBase64(sign.getBytes()));
@@ -120,13 +139,11 @@ public class RsaEncryptUtils {
      * @return
      */
     public  static PrivateKey getPrivateKeyFromBase64KeyEncodeStr(String key) {
-        byte[] keyBytes = Base64.decodeBase64(key);
-        // 取得私钥
-        PKCS8EncodedKeySpec pkcs8KeySpec = new PKCS8EncodedKeySpec(keyBytes);
         PrivateKey  privateKey = null;
         try {
-            privateKey = keyFactory.generatePrivate(pkcs8KeySpec);
-        } catch (InvalidKeySpecException e) {
+            // 取得私钥
+            privateKey = RsaKeyRegistry.getPrivateKey(key);
+        } catch (IllegalArgumentException e) {
             e.printStackTrace();
         }
         return privateKey;
@@ -138,11 +155,9 @@ public class RsaEncryptUtils {
      * @return
      */
     public static PublicKey getPublicKeyFromBase64KeyEncodeStr(String key) {
-        byte[] keyBytes = Base64.decodeBase64(key);
-        X509EncodedKeySpec x509KeySpec = new X509EncodedKeySpec(keyBytes);
         PublicKey  publicKey = null;
         try {
-            publicKey = keyFactory.generatePublic(x509KeySpec);
+            publicKey = RsaKeyRegistry.getPublicKey(key);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -160,8 +175,8 @@ public class RsaEncryptUtils {
         //要加密的数据
         log.info("要解密的数据:" + data);
         //对私钥解密
-        PrivateKey decodePrivateKey = getPrivateKeyFromBase64KeyEncodeStr(privateKey);
-        Cipher cipher = Cipher.getInstance(KEY_ALGORITHM);
+        PrivateKey decodePrivateKey = RsaKeyRegistry.getPrivateKey(privateKey);
+        Cipher cipher = CIPHER.get();
         cipher.init(Cipher.DECRYPT_MODE, decodePrivateKey);
         byte[] encodedData = Base64.decodeBase64(data);
         byte[] decodedData = cipher.doFinal(encodedData);
@@ -182,9 +197,9 @@ public class RsaEncryptUtils {
         log.info("要加密的数据:" + primitiveData);
         byte[] data = primitiveData.getBytes();
         // 对公钥解密
-        Key decodePublicKey = getPublicKeyFromBase64KeyEncodeStr(publicKey);
+        Key decodePublicKey = RsaKeyRegistry.getPublicKey(publicKey);
         // 对数据加密
-        Cipher cipher = Cipher.getInstance(KEY_ALGORITHM);
+        Cipher cipher = CIPHER.get();
         cipher.init(Cipher.ENCRYPT_MODE, decodePublicKey);
         byte[] encodedData = cipher.doFinal(data);
         String encodedDataStr = new String(Base64.encodeBase64(encodedData));
@@ -204,10 +219,9 @@ public class RsaEncryptUtils {
         log.info("要加密的数据:" + primitiveData);
         byte[] data = primitiveData.getBytes();
         // 对公钥解密
-        PublicKey decodePublicKey = getPublicKeyFromBase64KeyEncodeStr(publicKey);
-        KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
+        PublicKey decodePublicKey = RsaKeyRegistry.getPublicKey(publicKey);
         // 对数据加密
-        Cipher cipher = Cipher.getInstance(keyFactory.getAlgorithm());
+        Cipher cipher = CIPHER.get();
         cipher.init(Cipher.ENCRYPT_MODE, decodePublicKey);
         int inputLen = data.length;
         ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -244,9 +258,8 @@ public class RsaEncryptUtils {
     public static String decryptByPrivateKey(String data, String privateKey)
             throws Exception {
         byte[] encryptedData = Base64.decodeBase64(data);
-        KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
-        PrivateKey decodePrivateKey = getPrivateKeyFromBase64KeyEncodeStr(privateKey);
-        Cipher cipher = Cipher.getInstance(keyFactory.getAlgorithm());
+        PrivateKey decodePrivateKey = RsaKeyRegistry.getPrivateKey(privateKey);
+        Cipher cipher = CIPHER.get();
         cipher.init(Cipher.DECRYPT_MODE, decodePrivateKey);
         int inputLen = encryptedData.length;
         ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -271,6 +284,32 @@ public class RsaEncryptUtils {
         return decodedDataStr;
     }
 
+    /**
+     * 使用公钥进行信封加密, 只用 RSA 加密随机生成的 AES 密钥, 数据用 AES-GCM 加密, 适合大数据量, 格式见 {@link RsaEnvelope}
+     * @param primitiveData 要加密的数据
+     * @param publicKey 公钥base64字符串
+     * @return 加密后的base64字符串
+     * @throws Exception
+     */
+    public static String encryptByEnvelope(String primitiveData, String publicKey) throws Exception {
+        PublicKey decodePublicKey = RsaKeyRegistry.getPublicKey(publicKey);
+        return Base64.encodeBase64String(RsaEnvelope.seal(primitiveData.getBytes(StandardCharsets.UTF_8), decodePublicKey));
+    }
+
+    /**
+     * 使用私钥解密信封加密的数据
+     * @param data 使用base64处理过的密文
+     * @param privateKey 私钥
+     * @return 解密后的数据
+     * @throws Exception 密钥不匹配、头部或密文被篡改
+     */
+    public static String decryptByEnvelope(String data, String privateKey) throws Exception {
+        PrivateKey decodePrivateKey = RsaKeyRegistry.getPrivateKey(privateKey);
+        ByteBuffer buffer = AesEncryptUtils.base64DecodeToBuffer(data);
+        byte[] decryptedData = RsaEnvelope.open(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), decodePrivateKey);
+        return new String(decryptedData, StandardCharsets.UTF_8);
+    }
+
 
     public static void main(String[] args) throws Exception {
 
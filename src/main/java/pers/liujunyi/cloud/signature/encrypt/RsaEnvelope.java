@@ -0,0 +1,170 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.MGF1ParameterSpec;
+import java.util.Arrays;
+
+/***
+ * RSA 信封加密
+ *
+ * 每条消息随机生成一个 AES 密钥, 用 RSA 公钥加密这个密钥(只做一次 RSA 运算), 数据本身用 AES-GCM 加密.
+ * 和按 117 字节分段的 RSA 加密相比, RSA 的开销与数据大小无关. 格式:
+ * <pre>
+ * 魔数(2 字节, "RE") | 版本(1 字节, 当前为 1) | 加密后的密钥长度(2 字节) | RSA 加密后的 AES 密钥 | IV(12 字节) | 密文 | 认证标签(16 字节)
+ * </pre>
+ * 多字节整数均为大端序, IV 之后的部分与 {@link AesGcmEngine} 的密文格式相同, IV 之前的头部和加密后的密钥作为 GCM 的附加认证数据.<br>
+ * RSA 使用 OAEP 填充(SHA-256, MGF1 也使用 SHA-256), 不使用分段加密的 PKCS#1 v1.5 填充, 后者会成为 Bleichenbacher 攻击的填充预言机.
+ * 解密时 OAEP 解码失败、密钥长度错误和认证失败抛出相同的异常, 不区分失败原因.
+ * @author ljy
+ */
+public final class RsaEnvelope {
+
+    /** 魔数 */
+    public static final int MAGIC = 0x5245;
+
+    /** 当前版本 */
+    public static final byte VERSION = 1;
+
+    /** 固定头部长度 */
+    public static final int HEADER_LENGTH = 5;
+
+    /** 每条消息随机生成的 AES 密钥字节数 */
+    public static final int KEY_LENGTH = 16;
+
+    private static final String TRANSFORMATION = "RSA/ECB/OAEPWithSHA-256AndMGF1Padding";
+
+    /** 显式指定 MGF1 使用 SHA-256, JDK 对这个名称默认使用 SHA-1 */
+    private static final OAEPParameterSpec OAEP = new OAEPParameterSpec("SHA-256", "MGF1",
+            MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    /** 每个线程复用的 RSA Cipher, 每次使用前都会重新 init */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化 " + TRANSFORMATION + " 失败", e);
+        }
+    });
+
+    private RsaEnvelope() { }
+
+    /**
+     * 加密
+     * @param data 明文
+     * @param publicKey RSA 公钥
+     * @return 信封格式的密文
+     * @throws GeneralSecurityException
+     */
+    public static byte[] seal(byte[] data, PublicKey publicKey) throws GeneralSecurityException {
+        return seal(data, 0, data.length, publicKey);
+    }
+
+    /**
+     * 加密
+     * @param data 明文
+     * @param offset 起始位置
+     * @param length 长度
+     * @param publicKey RSA 公钥
+     * @return 信封格式的密文
+     * @throws GeneralSecurityException
+     */
+    public static byte[] seal(byte[] data, int offset, int length, PublicKey publicKey) throws GeneralSecurityException {
+        byte[] secretKey = new byte[KEY_LENGTH];
+        RANDOM.get().nextBytes(secretKey);
+        try {
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, publicKey, OAEP);
+            byte[] wrappedKey = cipher.doFinal(secretKey);
+            int bodyOffset = HEADER_LENGTH + wrappedKey.length;
+            byte[] output = new byte[bodyOffset + AesGcmEngine.getOutputSize(length)];
+            output[0] = (byte) (MAGIC >>> 8);
+            output[1] = (byte) MAGIC;
+            output[2] = VERSION;
+            output[3] = (byte) (wrappedKey.length >>> 8);
+            output[4] = (byte) wrappedKey.length;
+            System.arraycopy(wrappedKey, 0, output, HEADER_LENGTH, wrappedKey.length);
+            AesGcmEngine.create(secretKey).encrypt(ByteBuffer.wrap(data, offset, length),
+                    ByteBuffer.wrap(output, bodyOffset, output.length - bodyOffset), ByteBuffer.wrap(output, 0, bodyOffset));
+            return output;
+        } finally {
+            Arrays.fill(secretKey, (byte) 0);
+        }
+    }
+
+    /**
+     * 解密
+     * @param data 信封格式的密文
+     * @param privateKey RSA 私钥
+     * @return 明文
+     * @throws AEADBadTagException 密钥不匹配、头部或密文被篡改
+     * @throws IllegalArgumentException 不是信封格式或长度不足
+     */
+    public static byte[] open(byte[] data, PrivateKey privateKey) throws GeneralSecurityException {
+        return open(data, 0, data.length, privateKey);
+    }
+
+    /**
+     * 解密
+     * @param data 信封格式的密文
+     * @param offset 起始位置
+     * @param length 长度
+     * @param privateKey RSA 私钥
+     * @return 明文
+     * @throws AEADBadTagException 密钥不匹配、头部或密文被篡改
+     * @throws IllegalArgumentException 不是信封格式或长度不足
+     */
+    public static byte[] open(byte[] data, int offset, int length, PrivateKey privateKey) throws GeneralSecurityException {
+        if (!isEnvelope(data, offset, length)) {
+            throw new IllegalArgumentException("不是 RSA 信封格式");
+        }
+        if (data[offset + 2] != VERSION) {
+            throw new IllegalArgumentException("不支持的 RSA 信封版本: " + data[offset + 2]);
+        }
+        int wrappedLength = (data[offset + 3] & 0xFF) << 8 | (data[offset + 4] & 0xFF);
+        int bodyOffset = HEADER_LENGTH + wrappedLength;
+        if (length < bodyOffset + AesGcmEngine.OVERHEAD) {
+            throw new IllegalArgumentException("RSA 信封长度不足");
+        }
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, privateKey, OAEP);
+        byte[] secretKey = null;
+        try {
+            secretKey = cipher.doFinal(data, offset + HEADER_LENGTH, wrappedLength);
+            if (secretKey.length != KEY_LENGTH) {
+                throw new BadPaddingException();
+            }
+            return AesGcmEngine.create(secretKey).decrypt(data, offset + bodyOffset, length - bodyOffset,
+                    data, offset, bodyOffset);
+        } catch (BadPaddingException | IllegalBlockSizeException e) {
+            // 不暴露是哪一步失败
+            throw new AEADBadTagException("RSA 信封解密失败");
+        } finally {
+            if (secretKey != null) {
+                Arrays.fill(secretKey, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * 是否以信封格式的魔数开头
+     * @param data
+     * @param offset 起始位置
+     * @param length 长度
+     * @return
+     */
+    public static boolean isEnvelope(byte[] data, int offset, int length) {
+        return length >= HEADER_LENGTH && ((data[offset] & 0xFF) << 8 | (data[offset + 1] & 0xFF)) == MAGIC;
+    }
+}
@@ -0,0 +1,223 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import org.apache.commons.codec.binary.Base64;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/***
+ * RSA 密钥注册表
+ *
+ * BASE64 编码的 PKCS8 私钥 / X509 公钥只解析一次, 之后直接返回不可变的 PrivateKey / PublicKey 对象.
+ * 缓存以密钥内容的 SHA-256 摘要为键, 不长期持有私钥文本; 也可以通过 keyId 注册密钥, 按 keyId 取用.
+ * 解析和计算摘要时每个线程使用自己的 KeyFactory / MessageDigest, 互不竞争.
+ * @author ljy
+ */
+public final class RsaKeyRegistry {
+
+    /** 按密钥内容缓存的数量上限, 达到后按二次机会(CLOCK)算法淘汰一个最近没有使用的密钥 */
+    private static final int MAX_CACHED_KEYS = 256;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("初始化 SHA-256 失败", e);
+        }
+    });
+
+    private static final ThreadLocal<KeyFactory> KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return KeyFactory.getInstance(RsaEncryptUtils.KEY_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化 KeyFactory 失败", e);
+        }
+    });
+
+    /** 密钥内容摘要 -> 公钥 */
+    private static final KeyCache<PublicKey> PUBLIC_KEYS = new KeyCache<>();
+
+    /** 密钥内容摘要 -> 私钥 */
+    private static final KeyCache<PrivateKey> PRIVATE_KEYS = new KeyCache<>();
+
+    /** keyId -> 公钥 */
+    private static final ConcurrentMap<String, PublicKey> PUBLIC_KEY_IDS = new ConcurrentHashMap<>();
+
+    /** keyId -> 私钥 */
+    private static final ConcurrentMap<String, PrivateKey> PRIVATE_KEY_IDS = new ConcurrentHashMap<>();
+
+    private RsaKeyRegistry() { }
+
+    /**
+     * 获取BASE64编码的公钥
+     * @param key 公钥base64字符串
+     * @return
+     * @throws IllegalArgumentException 公钥格式不正确
+     */
+    public static PublicKey getPublicKey(String key) {
+        ByteBuffer digest = digest(key);
+        PublicKey publicKey = PUBLIC_KEYS.get(digest);
+        if (publicKey == null) {
+            publicKey = parsePublicKey(key);
+            PUBLIC_KEYS.put(digest, publicKey);
+        }
+        return publicKey;
+    }
+
+    /**
+     * 获取BASE64编码的私钥
+     * @param key 私钥base64字符串
+     * @return
+     * @throws IllegalArgumentException 私钥格式不正确
+     */
+    public static PrivateKey getPrivateKey(String key) {
+        ByteBuffer digest = digest(key);
+        PrivateKey privateKey = PRIVATE_KEYS.get(digest);
+        if (privateKey == null) {
+            privateKey = parsePrivateKey(key);
+            PRIVATE_KEYS.put(digest, privateKey);
+        }
+        return privateKey;
+    }
+
+    /**
+     * 按 keyId 注册公钥
+     * @param keyId 密钥标识
+     * @param key 公钥base64字符串
+     * @return
+     */
+    public static PublicKey registerPublicKey(String keyId, String key) {
+        PublicKey publicKey = getPublicKey(key);
+        PUBLIC_KEY_IDS.put(keyId, publicKey);
+        return publicKey;
+    }
+
+    /**
+     * 按 keyId 注册私钥
+     * @param keyId 密钥标识
+     * @param key 私钥base64字符串
+     * @return
+     */
+    public static PrivateKey registerPrivateKey(String keyId, String key) {
+        PrivateKey privateKey = getPrivateKey(key);
+        PRIVATE_KEY_IDS.put(keyId, privateKey);
+        return privateKey;
+    }
+
+    /**
+     * 按 keyId 获取公钥
+     * @param keyId 密钥标识
+     * @return 未注册时返回 null
+     */
+    public static PublicKey getPublicKeyById(String keyId) {
+        return PUBLIC_KEY_IDS.get(keyId);
+    }
+
+    /**
+     * 按 keyId 获取私钥
+     * @param keyId 密钥标识
+     * @return 未注册时返回 null
+     */
+    public static PrivateKey getPrivateKeyById(String keyId) {
+        return PRIVATE_KEY_IDS.get(keyId);
+    }
+
+    /**
+     * 移除 keyId 对应的公钥和私钥
+     * @param keyId 密钥标识
+     */
+    public static void remove(String keyId) {
+        PUBLIC_KEY_IDS.remove(keyId);
+        PRIVATE_KEY_IDS.remove(keyId);
+    }
+
+    /**
+     * 密钥内容的 SHA-256 摘要, ByteBuffer 按内容比较, 可以直接作为 Map 的键
+     */
+    private static ByteBuffer digest(String key) {
+        return ByteBuffer.wrap(SHA256.get().digest(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static PublicKey parsePublicKey(String key) {
+        try {
+            return KEY_FACTORY.get().generatePublic(new X509EncodedKeySpec(Base64.decodeBase64(key)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("RSA 公钥格式不正确", e);
+        }
+    }
+
+    private static PrivateKey parsePrivateKey(String key) {
+        try {
+            return KEY_FACTORY.get().generatePrivate(new PKCS8EncodedKeySpec(Base64.decodeBase64(key)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("RSA 私钥格式不正确", e);
+        }
+    }
+
+    /**
+     * 有数量上限的密钥缓存, 读取不加锁, 达到上限时一次只淘汰一个密钥
+     */
+    private static final class KeyCache<K> {
+        private final ConcurrentMap<ByteBuffer, Entry<K>> entries = new ConcurrentHashMap<>();
+
+        K get(ByteBuffer digest) {
+            Entry<K> entry = this.entries.get(digest);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            return entry.key;
+        }
+
+        void put(ByteBuffer digest, K key) {
+            if (this.entries.size() >= MAX_CACHED_KEYS) {
+                evictOne();
+            }
+            this.entries.putIfAbsent(digest, new Entry<>(key));
+        }
+
+        /**
+         * 遍历时清除经过的密钥的使用标记, 移除第一个没有被使用过的; 全部都被使用过时移除遍历到的第一个
+         */
+        private void evictOne() {
+            Map.Entry<ByteBuffer, Entry<K>> first = null;
+            for (Map.Entry<ByteBuffer, Entry<K>> entry : this.entries.entrySet()) {
+                Entry<K> candidate = entry.getValue();
+                if (!candidate.referenced) {
+                    this.entries.remove(entry.getKey(), candidate);
+                    return;
+                }
+                candidate.referenced = false;
+                if (first == null) {
+                    first = entry;
+                }
+            }
+            if (first != null) {
+                this.entries.remove(first.getKey(), first.getValue());
+            }
+        }
+    }
+
+    private static final class Entry<K> {
+        private final K key;
+        /** 上次淘汰之后是否被使用过 */
+        private volatile boolean referenced;
+
+        Entry(K key) {
+            this.key = key;
+        }
+    }
+}
@@ -24,4 +24,8 @@ public class SignInfo {
     @Value("${spring.encrypt.publicKey}")
     private  String publicKey;
 
+    /** 密钥标识, 密钥轮换时客户端通过请求头 keyId 指明使用的密钥 */
+    @Value("${spring.encrypt.keyId:}")
+    private String keyId;
+
 }
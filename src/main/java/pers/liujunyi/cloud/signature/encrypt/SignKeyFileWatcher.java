@@ -0,0 +1,87 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/***
+ * 密钥文件监听
+ *
+ * 配置了 data.sign.keyFile 时监听密钥文件所在目录, 文件创建或修改后重新加载密钥表, 不需要重启网关.<br>
+ * 更新密钥文件时建议先写入同目录下的临时文件再重命名, 避免读到写了一半的文件;
+ * 加载失败时保留原来的密钥.
+ * @author ljy
+ */
+@Log4j2
+@Component
+public class SignKeyFileWatcher implements DisposableBean {
+
+    /** 密钥文件路径 */
+    @Value("${data.sign.keyFile:}")
+    private String keyFile;
+
+    @Autowired
+    private SignTenantRegistry tenantRegistry;
+
+    private WatchService watchService;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!StringUtils.hasText(this.keyFile)) {
+            return;
+        }
+        Path file = Paths.get(this.keyFile.trim()).toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(() -> this.watch(file.getFileName()), "sign-key-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info(">> 开始监听密钥文件 {}", file);
+    }
+
+    private void watch(Path fileName) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = this.watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (fileName.equals(event.context())) {
+                    changed = true;
+                }
+            }
+            key.reset();
+            if (changed) {
+                try {
+                    this.tenantRegistry.reload();
+                } catch (RuntimeException e) {
+                    log.error(">> 密钥文件加载失败, 继续使用原来的密钥", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (this.watchService != null) {
+            this.watchService.close();
+        }
+    }
+}
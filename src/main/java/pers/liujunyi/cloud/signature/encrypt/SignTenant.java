@@ -0,0 +1,218 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.util.StringUtils;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Objects;
+
+/***
+ * 接入应用的签名密钥
+ *
+ * 创建时完成密钥的去空格、过期时间换算、AES/AES-GCM/HMAC 引擎和 RSA 密钥解析, 之后只读.<br>
+ * 密钥轮换后在宽限期内同时保留轮换前的密钥, 宽限期结束后只接受新密钥.
+ * @author ljy
+ */
+@Log4j2
+@Getter
+public final class SignTenant {
+
+    /** 应用标识, 默认应用为 null */
+    private final String appId;
+
+    /** 密钥标识, 未配置时为密钥指纹的十六进制 */
+    private final String keyId;
+
+    /** 密钥指纹, 见 {@link SignTokenFormat#fingerprint(String)} */
+    private final int keyFingerprint;
+
+    /** AES 密钥(已去除首尾空格) */
+    private final String secretKey;
+
+    /** sign 有效时长(毫秒) */
+    private final long signExpireMillis;
+
+    /** AES 加解密引擎 */
+    private final AesCipherEngine engine;
+
+    /** AES-GCM 加解密引擎, 用于二进制签名信息 */
+    private final AesGcmEngine gcmEngine;
+
+    /** HMAC 签名引擎 */
+    private final HmacSignEngine hmacEngine;
+
+    /** RSA 私钥(BASE64编码) */
+    private final String privateKeyText;
+
+    /** RSA 公钥(BASE64编码) */
+    private final String publicKeyText;
+
+    /** 解析后的 RSA 私钥, 未配置或格式错误时为 null */
+    private final PrivateKey privateKey;
+
+    /** 解析后的 RSA 公钥, 未配置或格式错误时为 null */
+    private final PublicKey publicKey;
+
+    /** 轮换前的密钥, 没有时为 null */
+    private final SignTenant previous;
+
+    /** 轮换前的密钥失效时间 */
+    private final long previousExpireAt;
+
+    private SignTenant(String appId, String keyId, String secretKey, long signExpireMillis, String privateKey, String publicKey) {
+        this.appId = appId;
+        this.secretKey = secretKey.trim();
+        this.keyFingerprint = SignTokenFormat.fingerprint(this.secretKey);
+        this.keyId = StringUtils.hasText(keyId) ? keyId.trim() : String.format("%08x", this.keyFingerprint);
+        this.signExpireMillis = signExpireMillis;
+        this.engine = AesCipherEngine.create(this.secretKey);
+        this.gcmEngine = AesGcmEngine.create(this.secretKey);
+        this.hmacEngine = HmacSignEngine.create(this.secretKey);
+        this.privateKeyText = privateKey;
+        this.publicKeyText = publicKey;
+        this.privateKey = parsePrivateKey(appId, privateKey);
+        this.publicKey = parsePublicKey(appId, publicKey);
+        this.previous = null;
+        this.previousExpireAt = 0L;
+    }
+
+    private SignTenant(SignTenant source, SignTenant previous, long previousExpireAt) {
+        this.appId = source.appId;
+        this.keyId = source.keyId;
+        this.keyFingerprint = source.keyFingerprint;
+        this.secretKey = source.secretKey;
+        this.signExpireMillis = source.signExpireMillis;
+        this.engine = source.engine;
+        this.gcmEngine = source.gcmEngine;
+        this.hmacEngine = source.hmacEngine;
+        this.privateKeyText = source.privateKeyText;
+        this.publicKeyText = source.publicKeyText;
+        this.privateKey = source.privateKey;
+        this.publicKey = source.publicKey;
+        this.previous = previous;
+        this.previousExpireAt = previousExpireAt;
+    }
+
+    /**
+     * 根据签名配置创建, 未配置的项使用默认配置
+     * @param appId 应用标识
+     * @param info 应用的签名配置
+     * @param defaults 默认签名配置
+     * @return
+     */
+    public static SignTenant of(String appId, SignInfo info, SignInfo defaults) {
+        String secretKey = StringUtils.hasText(info.getSecretKey()) ? info.getSecretKey() : defaults.getSecretKey();
+        if (!StringUtils.hasText(secretKey)) {
+            throw new IllegalArgumentException("应用 " + appId + " 未配置 secretKey");
+        }
+        Integer expireTime = info.getSignExpireTime() != null ? info.getSignExpireTime() : defaults.getSignExpireTime();
+        if (expireTime == null) {
+            throw new IllegalArgumentException("应用 " + appId + " 未配置 signExpireTime");
+        }
+        // 密钥标识跟随密钥, 应用单独配置了密钥时不继承默认的密钥标识
+        String keyId = StringUtils.hasText(info.getSecretKey()) && info != defaults ? info.getKeyId() : defaults.getKeyId();
+        return new SignTenant(appId, keyId, secretKey, expireTime * 60000L,
+                StringUtils.hasText(info.getPrivateKey()) ? info.getPrivateKey() : defaults.getPrivateKey(),
+                StringUtils.hasText(info.getPublicKey()) ? info.getPublicKey() : defaults.getPublicKey());
+    }
+
+    /**
+     * 根据默认签名配置创建
+     * @param defaults 默认签名配置
+     * @return
+     */
+    public static SignTenant of(SignInfo defaults) {
+        return of(null, defaults, defaults);
+    }
+
+    /**
+     * 轮换为当前密钥, 宽限期内仍接受轮换前的密钥
+     * @param previous 轮换前的密钥
+     * @param previousExpireAt 轮换前的密钥失效时间
+     * @return
+     */
+    public SignTenant withPrevious(SignTenant previous, long previousExpireAt) {
+        // 只保留上一个密钥, 不形成链
+        return new SignTenant(this, previous.withoutPrevious(), previousExpireAt);
+    }
+
+    /**
+     * 去掉轮换前的密钥
+     * @return
+     */
+    public SignTenant withoutPrevious() {
+        return this.previous == null ? this : new SignTenant(this, null, 0L);
+    }
+
+    /**
+     * 宽限期内的旧密钥
+     * @param now 当前时间
+     * @return 没有旧密钥或宽限期已过时返回 null
+     */
+    public SignTenant getGraceKey(long now) {
+        return this.previous != null && now < this.previousExpireAt ? this.previous : null;
+    }
+
+    /**
+     * 根据客户端提示的密钥标识选择密钥
+     * @param keyId 请求头中的密钥标识, 可以为 null
+     * @param now 当前时间
+     * @return 标识为宽限期内的旧密钥时返回旧密钥, 否则返回当前密钥
+     */
+    public SignTenant select(String keyId, long now) {
+        SignTenant graceKey = this.getGraceKey(now);
+        return graceKey != null && graceKey.keyId.equals(keyId) ? graceKey : this;
+    }
+
+    /**
+     * 用 key 校验过的签名当前是否仍然有效
+     * @param key 校验签名时使用的密钥
+     * @param now 当前时间
+     * @return
+     */
+    public boolean accepts(SignTenant key, long now) {
+        if (key.engine == this.engine) {
+            return true;
+        }
+        SignTenant graceKey = this.getGraceKey(now);
+        return graceKey != null && key.engine == graceKey.engine;
+    }
+
+    /**
+     * 配置是否相同, 相同时重新加载配置可以继续使用原来的对象
+     * @param other
+     * @return
+     */
+    public boolean sameConfig(SignTenant other) {
+        return this.secretKey.equals(other.secretKey) && this.keyId.equals(other.keyId)
+                && this.signExpireMillis == other.signExpireMillis
+                && Objects.equals(this.privateKeyText, other.privateKeyText)
+                && Objects.equals(this.publicKeyText, other.publicKeyText);
+    }
+
+    private static PrivateKey parsePrivateKey(String appId, String key) {
+        if (!StringUtils.hasText(key)) {
+            return null;
+        }
+        try {
+            return RsaKeyRegistry.getPrivateKey(key.trim());
+        } catch (IllegalArgumentException e) {
+            log.warn(">> 应用 {} 的 RSA 私钥格式错误", appId);
+            return null;
+        }
+    }
+
+    private static PublicKey parsePublicKey(String appId, String key) {
+        if (!StringUtils.hasText(key)) {
+            return null;
+        }
+        try {
+            return RsaKeyRegistry.getPublicKey(key.trim());
+        } catch (IllegalArgumentException e) {
+            log.warn(">> 应用 {} 的 RSA 公钥格式错误", appId);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/***
+ * 接入应用签名密钥表
+ *
+ * 应用通过请求头 appId 区分, 密钥配置在 spring.encrypt.tenants.{appId}.* 下, 未配置的项使用 spring.encrypt.* 的默认值;
+ * 没有 appId 请求头的请求使用默认密钥. 宽松绑定可能改写配置中的应用标识(例如环境变量只有大写形式),
+ * 所以应用标识统一转为小写后比较, 不区分大小写; 包含 '.' 等特殊字符的应用标识需要写成 spring.encrypt.tenants.[app.id].* 的形式.<br>
+ * data.sign.keyFile 指定的密钥文件(properties 格式, 配置项与上面相同)优先于应用配置, 文件变化或配置刷新时重新加载;
+ * 密钥变化后 data.sign.rotation.graceSeconds 秒内同时接受新旧两个密钥.<br>
+ * 密钥表是不可变的快照, 更新时整体替换, 查询只需要一次 volatile 读.
+ * @author ljy
+ */
+@Log4j2
+@Component
+public class SignTenantRegistry {
+
+    /** 应用标识请求头 */
+    public static final String APP_ID_HEADER = "appId";
+
+    /** 密钥标识请求头, 密钥轮换期间客户端用来指明使用的密钥 */
+    public static final String KEY_ID_HEADER = "keyId";
+
+    private static final String PREFIX = "spring.encrypt";
+
+    private static final String TENANTS_PREFIX = PREFIX + ".tenants";
+
+    /** 密钥文件路径 */
+    @Value("${data.sign.keyFile:}")
+    private String keyFile;
+
+    /** 密钥轮换后旧密钥的宽限时间(秒) */
+    @Value("${data.sign.rotation.graceSeconds:300}")
+    private long graceSeconds;
+
+    @Autowired
+    private SignInfo signObj;
+
+    @Autowired
+    private Environment environment;
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        this.reload();
+    }
+
+    /**
+     * 配置刷新时重新加载密钥表
+     * @param event
+     */
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        for (String key : event.getKeys()) {
+            if (key.startsWith(PREFIX + ".")) {
+                this.reload();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 根据应用标识获取签名密钥
+     * @param appId 应用标识, 为空时返回默认密钥
+     * @return 应用不存在时返回 null
+     */
+    public SignTenant resolve(String appId) {
+        Snapshot current = this.snapshot;
+        if (appId == null || appId.isEmpty()) {
+            return current.defaultTenant;
+        }
+        return current.tenants.get(normalize(appId));
+    }
+
+    /**
+     * 默认签名密钥
+     * @return
+     */
+    public SignTenant getDefault() {
+        return this.snapshot.defaultTenant;
+    }
+
+    /**
+     * 所有密钥中最长的 sign 有效时长(毫秒)
+     * @return
+     */
+    public long getMaxSignExpireMillis() {
+        return this.snapshot.maxSignExpireMillis;
+    }
+
+    /**
+     * 新增或替换一个应用的签名密钥
+     * @param appId 应用标识
+     * @param info 签名配置, 未配置的项使用默认值
+     */
+    public synchronized void put(String appId, SignInfo info) {
+        appId = normalize(appId);
+        Snapshot current = this.snapshot;
+        Map<String, SignTenant> tenants = new HashMap<>(current.tenants);
+        tenants.put(appId, this.rotate(current.tenants.get(appId),
+                SignTenant.of(appId, info, this.defaults(this.binder())), System.currentTimeMillis()));
+        this.snapshot = new Snapshot(current.defaultTenant, tenants);
+    }
+
+    /**
+     * 删除一个应用的签名密钥
+     * @param appId 应用标识
+     */
+    public synchronized void remove(String appId) {
+        appId = normalize(appId);
+        Snapshot current = this.snapshot;
+        if (current.tenants.containsKey(appId)) {
+            Map<String, SignTenant> tenants = new HashMap<>(current.tenants);
+            tenants.remove(appId);
+            this.snapshot = new Snapshot(current.defaultTenant, tenants);
+        }
+    }
+
+    /**
+     * 从配置重新构建密钥表
+     */
+    public synchronized void reload() {
+        Binder binder = this.binder();
+        SignInfo defaults = this.defaults(binder);
+        Map<String, SignInfo> configs = binder.bind(TENANTS_PREFIX, Bindable.mapOf(String.class, SignInfo.class))
+                .orElse(Collections.emptyMap());
+        long now = System.currentTimeMillis();
+        Snapshot current = this.snapshot;
+        Map<String, SignTenant> tenants = new HashMap<>(configs.size() * 2);
+        for (Map.Entry<String, SignInfo> entry : configs.entrySet()) {
+            String appId = normalize(entry.getKey());
+            if (tenants.containsKey(appId)) {
+                log.warn(">> 应用标识 {} 只有大小写不同, 忽略重复的配置", entry.getKey());
+                continue;
+            }
+            SignTenant tenant = SignTenant.of(appId, entry.getValue(), defaults);
+            tenants.put(appId, this.rotate(current == null ? null : current.tenants.get(appId), tenant, now));
+        }
+        SignTenant defaultTenant = this.rotate(current == null ? null : current.defaultTenant, SignTenant.of(defaults), now);
+        this.snapshot = new Snapshot(defaultTenant, tenants);
+        log.info(">> 签名密钥加载完成, 共 {} 个应用", tenants.size());
+    }
+
+    /**
+     * 应用标识统一转为小写, 已经是小写时不会创建新字符串
+     */
+    private static String normalize(String appId) {
+        return appId.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 新密钥替换旧密钥: 配置没有变化时保留原对象(签名校验缓存继续有效), 密钥变化时旧密钥进入宽限期
+     * @param current 当前密钥, 没有时为 null
+     * @param loaded 新加载的密钥
+     * @param now 当前时间
+     * @return
+     */
+    private SignTenant rotate(SignTenant current, SignTenant loaded, long now) {
+        if (current == null) {
+            return loaded;
+        }
+        if (current.sameConfig(loaded)) {
+            return current;
+        }
+        if (current.getSecretKey().equals(loaded.getSecretKey())) {
+            // 只有其他配置变化, 保留正在宽限期内的旧密钥
+            return current.getPrevious() == null ? loaded : loaded.withPrevious(current.getPrevious(), current.getPreviousExpireAt());
+        }
+        if (this.graceSeconds <= 0) {
+            return loaded;
+        }
+        log.info(">> 应用 {} 的密钥已从 {} 轮换为 {}, 旧密钥 {} 秒后失效",
+                loaded.getAppId(), current.getKeyId(), loaded.getKeyId(), this.graceSeconds);
+        return loaded.withPrevious(current, now + this.graceSeconds * 1000L);
+    }
+
+    /**
+     * 当前的默认签名配置, 刷新后 SignInfo 中的值不会更新, 所以优先从配置中读取
+     */
+    private SignInfo defaults(Binder binder) {
+        return binder.bind(PREFIX, Bindable.of(SignInfo.class)).orElse(this.signObj);
+    }
+
+    /**
+     * 密钥文件中的配置优先于应用配置
+     */
+    private Binder binder() {
+        if (!StringUtils.hasText(this.keyFile) || !(this.environment instanceof ConfigurableEnvironment)) {
+            return Binder.get(this.environment);
+        }
+        Path file = Paths.get(this.keyFile.trim());
+        if (!Files.exists(file)) {
+            log.warn(">> 密钥文件 {} 不存在, 使用应用配置中的密钥", file.toAbsolutePath());
+            return Binder.get(this.environment);
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new IllegalStateException("读取密钥文件 " + this.keyFile + " 失败", e);
+        }
+        MutablePropertySources sources = new MutablePropertySources(((ConfigurableEnvironment) this.environment).getPropertySources());
+        sources.addFirst(new PropertiesPropertySource("signKeyFile", properties));
+        return new Binder(ConfigurationPropertySources.from(sources), new PropertySourcesPlaceholdersResolver(sources));
+    }
+
+    /**
+     * 密钥表快照
+     */
+    private static final class Snapshot {
+        private final SignTenant defaultTenant;
+        private final Map<String, SignTenant> tenants;
+        private final long maxSignExpireMillis;
+
+        Snapshot(SignTenant defaultTenant, Map<String, SignTenant> tenants) {
+            this.defaultTenant = defaultTenant;
+            this.tenants = Collections.unmodifiableMap(tenants);
+            long max = defaultTenant.getSignExpireMillis();
+            for (SignTenant tenant : tenants.values()) {
+                max = Math.max(max, tenant.getSignExpireMillis());
+            }
+            this.maxSignExpireMillis = max;
+        }
+    }
+}
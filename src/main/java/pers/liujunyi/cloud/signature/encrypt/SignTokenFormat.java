@@ -0,0 +1,167 @@
+package pers.liujunyi.cloud.signature.encrypt;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+
+/***
+ * 二进制签名信息格式
+ *
+ * 用 AES-GCM 加密(见 {@link AesGcmEngine})并 BASE64 编码, 加上 {@value #SCHEME} 前缀后放在 sign 请求头中:
+ * <pre>
+ * AES-GCM BASE64(IV | 密文 | 认证标签)
+ * </pre>
+ * 认证标签覆盖整个明文, 没有密钥无法替换、删除或截断其中任何部分. 解密后的明文为:
+ * <pre>
+ * 版本(1 字节, 当前为 1) | 标志(1 字节) | 密钥指纹(4 字节) | signTime(8 字节)
+ * 标志包含 FLAG_QUERY_DIGEST 时: 查询参数摘要(32 字节, 见 {@link CanonicalQuery})
+ * 之后每个参数: 名称长度(1 字节) | 名称(UTF-8) | 值长度(2 字节) | 值(UTF-8), 直到明文结束
+ * </pre>
+ * 多字节整数均为大端序. 没有 {@value #SCHEME} 前缀的 sign 仍按 AES/ECB 加密的 JSON 格式解析,
+ * 其中出现二进制明文时直接拒绝: ECB 不做认证, 分块可以被替换或截断.<br>
+ * 密钥指纹是密钥 SHA-256 摘要的前 4 个字节, 密钥轮换时用来确认解密使用的密钥.
+ * @author ljy
+ */
+public final class SignTokenFormat {
+
+    /** sign 请求头中二进制签名信息的前缀 */
+    public static final String SCHEME = "AES-GCM";
+
+    private static final String SCHEME_PREFIX = SCHEME + " ";
+
+    /** 当前版本 */
+    public static final byte VERSION = 1;
+
+    /** 保留给二进制格式的最大版本号, JSON 明文不会以这些字节开头 */
+    public static final byte MAX_VERSION = 8;
+
+    /** 固定头部长度 */
+    public static final int HEADER_LENGTH = 14;
+
+    /** 标志位: 需要校验请求参数 */
+    public static final int FLAG_PARAMETER = 0x01;
+
+    /** 标志位: 携带查询参数摘要 */
+    public static final int FLAG_QUERY_DIGEST = 0x02;
+
+    /** 参数名最大字节数 */
+    public static final int MAX_NAME_LENGTH = 0xFF;
+
+    /** 参数值最大字节数 */
+    public static final int MAX_VALUE_LENGTH = 0xFFFF;
+
+    private SignTokenFormat() { }
+
+    /**
+     * 编码签名信息
+     * @param signTime 签名时间戳
+     * @param parameter 是否需要校验请求参数
+     * @param secretKey 密钥
+     * @param params 参与校验的请求参数, 可以为 null, 参数值不能为 null
+     * @return 未加密的二进制签名信息
+     */
+    public static byte[] encode(long signTime, boolean parameter, String secretKey, Map<String, ?> params) {
+        return encode(signTime, parameter, secretKey, null, params);
+    }
+
+    /**
+     * 编码签名信息
+     * @param signTime 签名时间戳
+     * @param parameter 是否需要校验请求参数
+     * @param secretKey 密钥
+     * @param queryDigest 查询参数摘要, 可以为 null
+     * @param params 参与校验的请求参数, 可以为 null, 参数值不能为 null
+     * @return 未加密的二进制签名信息
+     */
+    public static byte[] encode(long signTime, boolean parameter, String secretKey, byte[] queryDigest, Map<String, ?> params) {
+        if (queryDigest != null && queryDigest.length != CanonicalQuery.DIGEST_LENGTH) {
+            throw new IllegalArgumentException("查询参数摘要必须是 " + CanonicalQuery.DIGEST_LENGTH + " 字节");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_LENGTH + CanonicalQuery.DIGEST_LENGTH
+                + (params == null ? 0 : params.size() * 24));
+        out.write(VERSION);
+        out.write((parameter ? FLAG_PARAMETER : 0) | (queryDigest != null ? FLAG_QUERY_DIGEST : 0));
+        writeInt(out, fingerprint(secretKey.trim()));
+        writeInt(out, (int) (signTime >>> 32));
+        writeInt(out, (int) signTime);
+        if (queryDigest != null) {
+            out.write(queryDigest, 0, queryDigest.length);
+        }
+        if (params != null) {
+            for (Map.Entry<String, ?> entry : params.entrySet()) {
+                if (entry.getValue() == null) {
+                    // 不能编码成字符串 "null", 否则与 JSON 格式中的 null 含义不同
+                    throw new IllegalArgumentException("参数 " + entry.getKey() + " 的值不能为 null");
+                }
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                byte[] value = String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8);
+                if (name.length == 0 || name.length > MAX_NAME_LENGTH) {
+                    throw new IllegalArgumentException("参数名长度必须在 1~" + MAX_NAME_LENGTH + " 字节之间: " + entry.getKey());
+                }
+                if (value.length > MAX_VALUE_LENGTH) {
+                    throw new IllegalArgumentException("参数 " + entry.getKey() + " 的值超过 " + MAX_VALUE_LENGTH + " 字节");
+                }
+                out.write(name.length);
+                out.write(name, 0, name.length);
+                out.write(value.length >>> 8);
+                out.write(value.length);
+                out.write(value, 0, value.length);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * sign 请求头是否为 AES-GCM 加密的二进制签名信息
+     * @param sign 请求头中的签名
+     * @return
+     */
+    public static boolean isSealed(String sign) {
+        return sign != null && sign.regionMatches(true, 0, SCHEME_PREFIX, 0, SCHEME_PREFIX.length());
+    }
+
+    /**
+     * 加密编码后的签名信息, 加上前缀后可以直接放入 sign 请求头
+     * @param token {@link #encode} 的结果
+     * @param engine 密钥对应的 AES-GCM 引擎
+     * @return
+     * @throws GeneralSecurityException
+     */
+    public static String seal(byte[] token, AesGcmEngine engine) throws GeneralSecurityException {
+        return SCHEME_PREFIX + Base64.getEncoder().encodeToString(engine.encrypt(token));
+    }
+
+    /**
+     * 去掉前缀后的 BASE64 部分
+     * @param sign 以 {@value #SCHEME} 开头的签名
+     * @return
+     */
+    public static CharSequence sealedPayload(String sign) {
+        return sign.subSequence(SCHEME_PREFIX.length(), sign.length());
+    }
+
+    /**
+     * 密钥指纹: 密钥 SHA-256 摘要的前 4 个字节
+     * @param secretKey 密钥(已去除首尾空格)
+     * @return
+     */
+    public static int fingerprint(String secretKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secretKey.getBytes(StandardCharsets.UTF_8));
+            return (digest[0] & 0xFF) << 24 | (digest[1] & 0xFF) << 16 | (digest[2] & 0xFF) << 8 | (digest[3] & 0xFF);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
@@ -0,0 +1,199 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import pers.liujunyi.cloud.signature.encrypt.AesCipherEngine;
+import pers.liujunyi.cloud.signature.encrypt.Base64Utils;
+import pers.liujunyi.cloud.signature.encrypt.SignTenant;
+import pers.liujunyi.cloud.signature.encrypt.SignTenantRegistry;
+import pers.liujunyi.cloud.signature.exception.ErrorCodeEnum;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Cipher;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * 请求体解密过滤器
+ *
+ * 请求头 encrypt-body 为 base64 (BASE64(AES(明文))) 或 raw (AES(明文)) 时,
+ * 逐块解密请求体后转发明文给下游服务, 不会把整个请求体聚合到内存中.
+ *
+ * 请求体在转发给下游时才被读取, 转发开始后解密失败或超出大小限制只能中断转发, 客户端无法收到完整的 400/413 响应,
+ * 因此在转发前先校验 Content-Length: 必须存在且大于 0, raw 方式下还必须是 AES 块长度 (16 字节) 的整数倍.
+ * @author ljy
+ */
+@Log4j2
+@Component
+public class RequestBodyDecryptFilter implements GlobalFilter, Ordered {
+
+	/** 标识请求体已加密的请求头 */
+	public static final String ENCRYPT_BODY_HEADER = "encrypt-body";
+
+	private static final String MODE_BASE64 = "base64";
+
+	private static final String MODE_RAW = "raw";
+
+	/** AES 块长度 */
+	private static final int BLOCK_SIZE = 16;
+
+	/** 是否开启请求体解密, 默认关闭, 已有部署中带 encrypt-body 请求头的请求不受影响 */
+	@Value("${data.encrypt.body.enabled:false}")
+	private boolean enabled;
+
+	/** 加密请求体的最大字节数 */
+	@Value("${data.encrypt.body.maxSize:10485760}")
+	private long maxSize;
+
+	@Autowired
+	private SignTenantRegistry tenantRegistry;
+
+	@Override
+	public int getOrder() {
+		// 在签名校验之后执行
+		return -998;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		String mode = request.getHeaders().getFirst(ENCRYPT_BODY_HEADER);
+		if (!this.enabled || mode == null) {
+			return chain.filter(exchange);
+		}
+		boolean base64 = MODE_BASE64.equalsIgnoreCase(mode.trim());
+		if (!base64 && !MODE_RAW.equalsIgnoreCase(mode.trim())) {
+			log.info(" >> 非法请求: " + request.getURI().getRawPath() + " 不支持的请求体加密方式 " + mode);
+			return SignRejectionWriter.write(exchange.getResponse(), ErrorCodeEnum.PARAMS, "不支持的请求体加密方式.");
+		}
+		long contentLength = request.getHeaders().getContentLength();
+		if (contentLength <= 0 || (!base64 && contentLength % BLOCK_SIZE != 0)) {
+			log.info(" >> 非法请求: " + request.getURI().getRawPath() + " 加密请求体长度不合法 " + contentLength);
+			return SignRejectionWriter.write(exchange.getResponse(), ErrorCodeEnum.PARAMS, "加密请求体必须携带有效的 Content-Length.");
+		}
+		if (contentLength > this.maxSize) {
+			log.info(" >> 非法请求: " + request.getURI().getRawPath() + " 请求体超过大小限制");
+			return SignRejectionWriter.write(exchange.getResponse(), ErrorCodeEnum.PAYLOAD_TOO_LARGE, null);
+		}
+		SignTenant tenant = this.tenantRegistry.resolve(request.getHeaders().getFirst(SignTenantRegistry.APP_ID_HEADER));
+		if (tenant == null) {
+			log.info(" >> 非法请求: " + request.getURI().getRawPath() + " 应用不存在");
+			return SignRejectionWriter.write(exchange.getResponse(), ErrorCodeEnum.PARAMS, "应用不存在.");
+		}
+		// 密钥轮换的宽限期内, 客户端可以通过 keyId 请求头指定使用旧密钥
+		String keyId = request.getHeaders().getFirst(SignTenantRegistry.KEY_ID_HEADER);
+		AesCipherEngine engine = tenant.select(keyId, System.currentTimeMillis()).getEngine();
+		DataBufferFactory bufferFactory = exchange.getResponse().bufferFactory();
+		HttpHeaders headers = new HttpHeaders();
+		headers.putAll(request.getHeaders());
+		headers.remove(ENCRYPT_BODY_HEADER);
+		// 解密后长度不同, 改为分块传输
+		headers.remove(HttpHeaders.CONTENT_LENGTH);
+		headers.set(HttpHeaders.TRANSFER_ENCODING, "chunked");
+		ServerHttpRequest decorator = new ServerHttpRequestDecorator(request) {
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+
+			@Override
+			public Flux<DataBuffer> getBody() {
+				return Flux.defer(() -> {
+					BodyDecryptor decryptor = new BodyDecryptor(engine, base64, maxSize, bufferFactory);
+					return Flux.concat(super.getBody().map(decryptor::update), Mono.fromCallable(decryptor::finish));
+				});
+			}
+		};
+		return chain.filter(exchange.mutate().request(decorator).build());
+	}
+
+	/**
+	 * 单个请求体的解密状态: 密文逐块经过 BASE64 解码和 Cipher.update, 明文直接写入新分配的缓冲区
+	 *
+	 * 这里抛出的异常发生在向下游转发请求体的过程中, 只会中断转发, 不能保证客户端收到对应的 400/413 响应,
+	 * 常见的非法请求需要在 filter 中提前拒绝.
+	 */
+	private static final class BodyDecryptor {
+		private final Cipher cipher;
+		private final Base64Utils.StreamDecoder decoder;
+		private final long maxSize;
+		private final DataBufferFactory bufferFactory;
+		private byte[] scratch = new byte[0];
+		private long received;
+
+		BodyDecryptor(AesCipherEngine engine, boolean base64, long maxSize, DataBufferFactory bufferFactory) {
+			try {
+				this.cipher = engine.newCipher(Cipher.DECRYPT_MODE);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("初始化请求体解密失败", e);
+			}
+			this.decoder = base64 ? new Base64Utils.StreamDecoder() : null;
+			this.maxSize = maxSize;
+			this.bufferFactory = bufferFactory;
+		}
+
+		DataBuffer update(DataBuffer buffer) {
+			try {
+				int readable = buffer.readableByteCount();
+				this.received += readable;
+				if (this.received > this.maxSize) {
+					throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "请求体超过大小限制.");
+				}
+				ByteBuffer input = buffer.asByteBuffer();
+				if (this.decoder != null) {
+					byte[] scratch = scratch(Base64Utils.StreamDecoder.maxDecodedLength(readable));
+					int length = this.decoder.update(input, scratch, 0);
+					input = ByteBuffer.wrap(scratch, 0, length);
+				}
+				DataBuffer output = this.bufferFactory.allocateBuffer(Math.max(1, this.cipher.getOutputSize(input.remaining())));
+				try {
+					int written = this.cipher.update(input, output.asByteBuffer(0, output.capacity()));
+					return output.writePosition(written);
+				} catch (GeneralSecurityException | RuntimeException e) {
+					DataBufferUtils.release(output);
+					throw e;
+				}
+			} catch (GeneralSecurityException | IllegalArgumentException e) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "请求体解密失败.", e);
+			} finally {
+				DataBufferUtils.release(buffer);
+			}
+		}
+
+		DataBuffer finish() {
+			try {
+				ByteBuffer input = ByteBuffer.allocate(0);
+				if (this.decoder != null) {
+					byte[] scratch = scratch(2);
+					input = ByteBuffer.wrap(scratch, 0, this.decoder.finish(scratch, 0));
+				}
+				byte[] plain = this.cipher.doFinal(input.array(), input.arrayOffset(), input.remaining());
+				return this.bufferFactory.wrap(plain);
+			} catch (GeneralSecurityException | IllegalArgumentException e) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "请求体解密失败.", e);
+			}
+		}
+
+		private byte[] scratch(int size) {
+			if (this.scratch.length < size) {
+				this.scratch = new byte[size];
+			}
+			return this.scratch;
+		}
+	}
+}
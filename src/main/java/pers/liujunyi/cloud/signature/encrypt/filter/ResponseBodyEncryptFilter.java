@@ -0,0 +1,178 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import lombok.extern.log4j.Log4j2;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import pers.liujunyi.cloud.signature.encrypt.AesCipherEngine;
+import pers.liujunyi.cloud.signature.encrypt.Base64Utils;
+import pers.liujunyi.cloud.signature.encrypt.SignTenant;
+import pers.liujunyi.cloud.signature.encrypt.SignTenantRegistry;
+import pers.liujunyi.cloud.signature.exception.ErrorCodeEnum;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Cipher;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * 响应体加密过滤器
+ *
+ * 请求头 encrypt-response 为 base64 或 raw 时, 下游返回的响应体在流经网关时逐块加密,
+ * 密文(或其 BASE64 编码)直接写入响应的缓冲区工厂分配的池化缓冲区, 不构造中间字符串.
+ * 要求加密但应用不存在时直接拒绝请求, 不返回明文.
+ * @author ljy
+ */
+@Log4j2
+@Component
+public class ResponseBodyEncryptFilter implements GlobalFilter, Ordered {
+
+	/** 要求加密响应体的请求头, 响应中以同名响应头回写加密方式 */
+	public static final String ENCRYPT_RESPONSE_HEADER = "encrypt-response";
+
+	private static final String MODE_BASE64 = "base64";
+
+	private static final String MODE_RAW = "raw";
+
+	/** 是否开启响应体加密, 默认关闭, 已有部署中带 encrypt-response 请求头的请求不受影响 */
+	@Value("${data.encrypt.response.enabled:false}")
+	private boolean enabled;
+
+	@Autowired
+	private SignTenantRegistry tenantRegistry;
+
+	@Override
+	public int getOrder() {
+		// 必须在 NettyWriteResponseFilter 写响应之前装饰 response
+		return -997;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+		String mode = exchange.getRequest().getHeaders().getFirst(ENCRYPT_RESPONSE_HEADER);
+		if (!this.enabled || mode == null) {
+			return chain.filter(exchange);
+		}
+		boolean base64;
+		if (MODE_BASE64.equalsIgnoreCase(mode.trim())) {
+			base64 = true;
+		} else if (MODE_RAW.equalsIgnoreCase(mode.trim())) {
+			base64 = false;
+		} else {
+			return chain.filter(exchange);
+		}
+		SignTenant tenant = this.tenantRegistry.resolve(exchange.getRequest().getHeaders().getFirst(SignTenantRegistry.APP_ID_HEADER));
+		if (tenant == null) {
+			// 客户端要求加密响应, 不能退回明文
+			log.info(" >> 非法请求: " + exchange.getRequest().getURI().getRawPath() + " 要求加密响应但应用不存在");
+			return SignRejectionWriter.write(exchange.getResponse(), ErrorCodeEnum.PARAMS, "应用不存在.");
+		}
+		// 密钥轮换的宽限期内, 客户端可以通过 keyId 请求头指定使用旧密钥
+		String keyId = exchange.getRequest().getHeaders().getFirst(SignTenantRegistry.KEY_ID_HEADER);
+		AesCipherEngine engine = tenant.select(keyId, System.currentTimeMillis()).getEngine();
+		ServerHttpResponse response = exchange.getResponse();
+		ServerHttpResponseDecorator decorator = new ServerHttpResponseDecorator(response) {
+			@Override
+			public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+				HttpHeaders headers = getDelegate().getHeaders();
+				headers.remove(HttpHeaders.CONTENT_LENGTH);
+				headers.set(ENCRYPT_RESPONSE_HEADER, base64 ? MODE_BASE64 : MODE_RAW);
+				return super.writeWith(Flux.defer(() -> {
+					BodyEncryptor encryptor = new BodyEncryptor(engine, base64, bufferFactory());
+					return Flux.concat(Flux.from(body).map(encryptor::update), Mono.fromCallable(encryptor::finish));
+				}));
+			}
+
+			@Override
+			public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+				return writeWith(Flux.from(body).flatMapSequential(publisher -> publisher));
+			}
+		};
+		return chain.filter(exchange.mutate().response(decorator).build());
+	}
+
+	/**
+	 * 单个响应体的加密状态
+	 */
+	private static final class BodyEncryptor {
+		private final Cipher cipher;
+		private final Base64Utils.StreamEncoder encoder;
+		private final DataBufferFactory bufferFactory;
+		private byte[] scratch = new byte[0];
+
+		BodyEncryptor(AesCipherEngine engine, boolean base64, DataBufferFactory bufferFactory) {
+			try {
+				this.cipher = engine.newCipher(Cipher.ENCRYPT_MODE);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("初始化响应体加密失败", e);
+			}
+			this.encoder = base64 ? new Base64Utils.StreamEncoder() : null;
+			this.bufferFactory = bufferFactory;
+		}
+
+		DataBuffer update(DataBuffer buffer) {
+			try {
+				ByteBuffer input = buffer.asByteBuffer();
+				int outputSize = this.cipher.getOutputSize(input.remaining());
+				if (this.encoder == null) {
+					DataBuffer output = this.bufferFactory.allocateBuffer(Math.max(1, outputSize));
+					return write(output, target -> this.cipher.update(input, target));
+				}
+				byte[] scratch = scratch(outputSize);
+				int length = this.cipher.update(input, ByteBuffer.wrap(scratch));
+				DataBuffer output = this.bufferFactory.allocateBuffer(Base64Utils.StreamEncoder.maxEncodedLength(length));
+				return write(output, target -> this.encoder.update(scratch, 0, length, target));
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("响应体加密失败", e);
+			} finally {
+				DataBufferUtils.release(buffer);
+			}
+		}
+
+		DataBuffer finish() throws GeneralSecurityException {
+			byte[] last = this.cipher.doFinal();
+			if (this.encoder == null) {
+				return this.bufferFactory.wrap(last);
+			}
+			DataBuffer output = this.bufferFactory.allocateBuffer(Base64Utils.StreamEncoder.maxEncodedLength(last.length));
+			return write(output, target -> this.encoder.update(last, 0, last.length, target) + this.encoder.finish(target));
+		}
+
+		private static DataBuffer write(DataBuffer output, ChunkWriter writer) throws GeneralSecurityException {
+			try {
+				int written = writer.write(output.asByteBuffer(0, output.capacity()));
+				return output.writePosition(written);
+			} catch (GeneralSecurityException | RuntimeException e) {
+				DataBufferUtils.release(output);
+				throw e;
+			}
+		}
+
+		private byte[] scratch(int size) {
+			if (this.scratch.length < size) {
+				this.scratch = new byte[size];
+			}
+			return this.scratch;
+		}
+	}
+
+	/**
+	 * 向输出缓冲区写入一块数据
+	 */
+	@FunctionalInterface
+	private interface ChunkWriter {
+		int write(ByteBuffer target) throws GeneralSecurityException;
+	}
+}
@@ -3,31 +3,33 @@ package pers.liujunyi.cloud.signature.encrypt.filter;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
-import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
-import org.springframework.util.PathMatcher;
+import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import pers.liujunyi.cloud.signature.encrypt.AesEncryptUtils;
-import pers.liujunyi.cloud.signature.encrypt.SignInfo;
-import pers.liujunyi.cloud.signature.exception.ErrorCodeEnum;
-import pers.liujunyi.cloud.signature.restful.ResultInfo;
-import pers.liujunyi.cloud.signature.util.DateTimeUtils;
-import pers.liujunyi.cloud.signature.util.JsonUtils;
+import pers.liujunyi.cloud.signature.encrypt.HmacSignUtils;
+import pers.liujunyi.cloud.signature.encrypt.SignTenant;
+import pers.liujunyi.cloud.signature.encrypt.SignTenantRegistry;
+import pers.liujunyi.cloud.signature.encrypt.SignTokenFormat;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Map;
-import java.util.Set;
+import javax.annotation.PostConstruct;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 
 /**
@@ -35,7 +37,9 @@ import java.util.Set;
  * 
  * 请求头中获取sign进行校验，判断合法性和是否过期<br>
  * 
- * sign=加密({参数：值, 参数2：值2, signTime:签名时间戳})
+ * sign=加密({参数：值, 参数2：值2, signTime:签名时间戳})<br>
+ *
+ * 也可以使用 HMAC 签名: sign=HMAC-SHA256 BASE64(签名), 规范请求的格式见 {@link HmacSignUtils}
  * @author ljy
  *
  *
@@ -44,14 +48,111 @@ import java.util.Set;
 @Component
 public class SignAuthFilter implements GlobalFilter, Ordered {
 
-	/** sign 过期时间 */
-	private Integer signExpireTime = 60000;
+	private static final String MATCH_START_KEY = "data.sign.matchStart";
 
 	@Value("${data.sign.matchStart}")
 	private String matchStarts;
 
+	/** 签名时间允许比服务器时间超前的毫秒数(客户端时钟偏差), 超过则认为签名时间无效 */
+	@Value("${data.sign.clockSkew:30000}")
+	private long clockSkewMillis;
+
+	/** 是否开启签名防重放(同一个签名在有效期内只能使用一次) */
+	@Value("${data.sign.replay.enabled:false}")
+	private boolean replayEnabled;
+
+	/** 防重放每个时间桶可记录的签名数, 桶满后新的签名按服务繁忙(503)拒绝 */
+	@Value("${data.sign.replay.capacity:65536}")
+	private int replayCapacity;
+
+	/** 是否缓存签名校验结果 */
+	@Value("${data.sign.cache.enabled:true}")
+	private boolean cacheEnabled;
+
+	/** 签名校验结果缓存条目上限 */
+	@Value("${data.sign.cache.maximumSize:10000}")
+	private int cacheMaximumSize;
+
+	/** 是否开启签名校验失败限流, 按连接的对端地址计数; 部署在负载均衡后面时所有客户端共享负载均衡地址的额度 */
+	@Value("${data.sign.failure.enabled:false}")
+	private boolean failureLimitEnabled;
+
+	/** 每个客户端允许连续失败的次数 */
+	@Value("${data.sign.failure.burst:20}")
+	private int failureBurst;
+
+	/** 每个客户端每分钟恢复的失败额度 */
+	@Value("${data.sign.failure.perMinute:60}")
+	private int failurePerMinute;
+
+	/** 失败限流的槽位数 */
+	@Value("${data.sign.failure.stripes:4096}")
+	private int failureStripes;
+
+	/** 是否接受 HMAC 签名 */
+	@Value("${data.sign.hmac.enabled:true}")
+	private boolean hmacEnabled;
+
+	/** HMAC 签名校验请求体摘要时, 转发前缓存在内存中的请求体最大字节数 */
+	@Value("${data.sign.hmac.maxBodySize:1048576}")
+	private int hmacMaxBodySize;
+
 	@Autowired
-	private SignInfo signObj;
+	private SignTenantRegistry tenantRegistry;
+
+	@Autowired
+	private Environment environment;
+
+	@Autowired
+	private SignMetrics metrics;
+
+	@Autowired
+	private SignVerifyScheduler verifyScheduler;
+
+	/** 编译后的签名校验路径规则 */
+	private volatile SignPathMatcher pathMatcher;
+
+	/** 签名防重放, 未开启时为 null */
+	private SignReplayGuard replayGuard;
+
+	/** 签名校验结果缓存, 未开启时为 null */
+	private SignClaimsCache claimsCache;
+
+	/** 签名校验失败限流, 未开启时为 null */
+	private SignFailureLimiter failureLimiter;
+
+	/** 预先序列化的签名校验失败响应 */
+	private final SignRejectionWriter rejectionWriter = new SignRejectionWriter();
+
+	@PostConstruct
+	public void init() {
+		this.pathMatcher = SignPathMatcher.compile(this.matchStarts);
+		log.info(">> 签名校验路径规则加载完成, 共 {} 条", this.pathMatcher.size());
+		if (this.replayEnabled && this.replayGuard == null) {
+			this.replayGuard = new SignReplayGuard(this.replayWindowMillis(), this.replayCapacity);
+			this.metrics.bindReplayGuard(this.replayGuard);
+		}
+		if (this.cacheEnabled && this.claimsCache == null) {
+			this.claimsCache = new SignClaimsCache(this.cacheMaximumSize);
+			this.metrics.bindCache(this.claimsCache);
+		}
+		if (this.failureLimitEnabled && this.failureLimiter == null) {
+			this.failureLimiter = new SignFailureLimiter(this.failureBurst, this.failurePerMinute, this.failureStripes);
+		}
+		this.metrics.bindScheduler(this.verifyScheduler);
+	}
+
+	/**
+	 * 配置刷新时重新编译路径规则
+	 * @param event
+	 */
+	@EventListener
+	public void onEnvironmentChange(EnvironmentChangeEvent event) {
+		if (event.getKeys().contains(MATCH_START_KEY)) {
+			this.matchStarts = this.environment.getProperty(MATCH_START_KEY);
+			this.init();
+		}
+	}
 
 	@Override
 	public int getOrder() {
@@ -61,95 +162,372 @@ public class SignAuthFilter implements GlobalFilter, Ordered {
 	@Override
 	public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
 		ServerHttpRequest httpServletRequest = exchange.getRequest();
-		ServerHttpResponse httpServletResponse = exchange.getResponse();
 		// 如果是OPTIONS则结束请求
-		if (HttpMethod.OPTIONS.toString().equals(httpServletRequest.getMethod())) {
+		if (httpServletRequest.getMethod() == HttpMethod.OPTIONS) {
 			exchange.getResponse().setStatusCode(HttpStatus.NO_CONTENT);
 			return chain.filter(exchange);
 		}
-        HttpHeaders headers = httpServletRequest.getHeaders();
 		String requestUrl = httpServletRequest.getURI().getRawPath();
 		log.info(">> 数字签名校验开始...............");
 		log.info(">> HttpMethod:{}, Url:{}", httpServletRequest.getMethod(), requestUrl);
-        // 不需要进行签名校验的url
-        String[] antMatchers = matchStarts.trim().split(",");
-		boolean through = false;
-        for (String matchers : antMatchers) {
-            PathMatcher requestMatcher = new AntPathMatcher();
-            through = requestMatcher.matchStart(matchers.trim(), requestUrl);
-            if (through) {
-                break;
-            }
-        }
-		if (!through) {
+		long phase = this.metrics.start();
+        // 需要进行签名校验的url 及其校验策略
+		SignPolicy policy = this.pathMatcher.match(requestUrl);
+		this.metrics.record(SignMetrics.Phase.MATCH, phase);
+		if (policy == SignPolicy.SKIP) {
 			log.info(">> " + requestUrl + " 不进行签名校验....");
+			this.metrics.outcome(SignOutcome.SKIPPED);
 			return chain.filter(exchange);
 		}
-        boolean pass = true;
-		ResultInfo result = new ResultInfo();
-		result.setTimestamp(DateTimeUtils.getCurrentDateTimeAsString());
-		result.setSuccess(false);
-		result.setStatus(ErrorCodeEnum.SIGN_INVALID.getCode());
-		result.setMessage("非法请求：数字签名错误.");
-		String sign = headers.getFirst("sign");
+		String appId = httpServletRequest.getHeaders().getFirst(SignTenantRegistry.APP_ID_HEADER);
+		int clientKey = this.failureLimiter == null ? 0 : SignFailureLimiter.key(this.clientAddress(httpServletRequest));
+		if (this.failureLimiter != null && this.failureLimiter.isBlocked(clientKey, System.currentTimeMillis())) {
+			// 失败过多的客户端不再解密, 直接拒绝
+			log.info(" >> 非法请求: " + requestUrl + " 签名错误次数过多");
+			return this.complete(exchange, chain, SignOutcome.RATE_LIMITED, clientKey);
+		}
+		SignTenant tenant = this.tenantRegistry.resolve(appId);
+		if (tenant == null) {
+			log.info(" >> 非法请求: " + requestUrl + " 应用不存在");
+			return this.complete(exchange, chain, SignOutcome.UNKNOWN_TENANT, clientKey);
+		}
+		String sign = httpServletRequest.getHeaders().getFirst("sign");
+		if (this.hmacEnabled && HmacSignUtils.isHmac(sign)) {
+			// HMAC 签名只需要一次摘要计算, 直接在当前线程校验
+			SignOutcome outcome = this.verifyHmac(httpServletRequest, requestUrl, tenant, sign);
+			if (outcome == SignOutcome.PASS && this.hasBody(httpServletRequest)) {
+				return this.verifyBody(exchange, chain, requestUrl, clientKey);
+			}
+			return this.complete(exchange, chain, outcome, clientKey);
+		}
+		long now = System.currentTimeMillis();
+		SignClaims cached = this.claimsCache == null || !StringUtils.hasText(sign) ? null : this.claimsCache.get(sign, now);
+		if (cached != null && !tenant.accepts(cached.getTenant(), now)) {
+			// 其他应用的签名, 或者校验时使用的密钥已经失效, 需要重新校验
+			cached = null;
+		}
+		if (cached == null && this.verifyScheduler.isOffload(sign)) {
+			// 需要解密的长签名转移到校验线程池, 不占用事件循环; 校验完成后回到事件循环继续过滤器链
+			return this.verifyScheduler.execute(() -> this.verify(httpServletRequest, requestUrl, policy, tenant, sign, null), httpServletRequest)
+					.onErrorResume(RejectedExecutionException.class, e -> {
+						log.info(" >> 拒绝请求: " + requestUrl + " 签名校验线程池已满");
+						return Mono.just(SignOutcome.OVERLOADED);
+					})
+					.flatMap(outcome -> this.complete(exchange, chain, outcome, clientKey));
+		}
+		return this.complete(exchange, chain, this.verify(httpServletRequest, requestUrl, policy, tenant, sign, cached), clientKey);
+	}
+
+	/**
+	 * 根据校验结果继续执行或拒绝请求
+	 * @param exchange
+	 * @param chain
+	 * @param outcome
+	 * @param clientKey 失败限流的客户端标识
+	 * @return
+	 */
+	private Mono<Void> complete(ServerWebExchange exchange, GatewayFilterChain chain, SignOutcome outcome, int clientKey) {
+		this.metrics.outcome(outcome);
+		if (outcome.isRejected()) {
+			// 限流和过载不是客户端的签名错误, 不计入失败次数
+			if (this.failureLimiter != null && outcome != SignOutcome.RATE_LIMITED && outcome != SignOutcome.OVERLOADED) {
+				this.failureLimiter.recordFailure(clientKey, System.currentTimeMillis());
+			}
+			return this.rejectionWriter.write(exchange.getResponse(), outcome);
+		}
+		return chain.filter(exchange);
+	}
+
+	/**
+	 * 缓存请求体并校验 HMAC 签名覆盖的摘要, 一致后才转发, 下游不会收到被篡改的请求体
+	 * @param exchange
+	 * @param chain
+	 * @param requestUrl
+	 * @param clientKey 失败限流的客户端标识
+	 * @return
+	 */
+	private Mono<Void> verifyBody(ServerWebExchange exchange, GatewayFilterChain chain, String requestUrl, int clientKey) {
+		ServerHttpRequest httpServletRequest = exchange.getRequest();
+		if (httpServletRequest.getHeaders().getContentLength() > this.hmacMaxBodySize) {
+			log.info(" >> 非法请求: " + requestUrl + " 请求体超过大小限制");
+			return this.complete(exchange, chain, SignOutcome.BODY_TOO_LARGE, clientKey);
+		}
+		String bodyDigest = httpServletRequest.getHeaders().getFirst(HmacSignUtils.BODY_DIGEST_HEADER);
+		// 只把读取请求体时的超限转换为拒绝, 下游过滤器的异常照常传递
+		return SignBodyDigestRequest.read(httpServletRequest, exchange.getResponse().bufferFactory(), this.hmacMaxBodySize)
+				.map(Optional::of)
+				.onErrorResume(ResponseStatusException.class, e -> Mono.just(Optional.empty()))
+				.flatMap(body -> {
+					if (!body.isPresent()) {
+						log.info(" >> 非法请求: " + requestUrl + " 请求体超过大小限制");
+						return this.complete(exchange, chain, SignOutcome.BODY_TOO_LARGE, clientKey);
+					}
+					SignBodyDigestRequest request = body.get();
+					if (!request.matches(bodyDigest)) {
+						request.release();
+						log.info(" >> 非法请求: " + requestUrl + " 请求体被篡改");
+						return this.complete(exchange, chain, SignOutcome.BODY_TAMPERED, clientKey);
+					}
+					return this.complete(exchange.mutate().request(request).build(), chain, SignOutcome.PASS, clientKey);
+				});
+	}
+
+	/**
+	 * 校验请求签名
+	 * @param httpServletRequest
+	 * @param requestUrl
+	 * @param policy 路径对应的校验策略
+	 * @param tenant 请求所属应用的签名密钥
+	 * @param sign 请求头中的签名
+	 * @param cached 缓存中的签名信息, 没有时为 null
+	 * @return
+	 */
+	private SignOutcome verify(ServerHttpRequest httpServletRequest, String requestUrl, SignPolicy policy,
+							   SignTenant tenant, String sign, SignClaims cached) {
 		if (!StringUtils.hasText(sign)) {
 			log.info(" >> 非法请求: " + requestUrl + " 缺少签名信息");
-			pass = false;
-		}
-		if (pass) {
-			try {
-				String decryptBody = AesEncryptUtils.aesDecrypt(sign, signObj.getSecretKey().trim());
-				Map<String, Object> signInfo = JsonUtils.getMapper().readValue(decryptBody, Map.class);
-				Long curSignTime = (Long) signInfo.get("signTime");
-				String curSecret = (String) signInfo.get("secret");
-				boolean validateParameter = (Boolean) signInfo.get("parameter");
-				if (!curSecret.equals(signObj.getSecretKey().trim())) {
+			return SignOutcome.MISSING_SIGN;
+		}
+		try {
+			long now = System.currentTimeMillis();
+			long expireMillis = tenant.getSignExpireMillis();
+			SignClaims claims = cached;
+			if (claims == null) {
+				claims = this.decryptClaims(sign, tenant, httpServletRequest.getHeaders().getFirst(SignTenantRegistry.KEY_ID_HEADER), now);
+				if (claims == null) {
 					log.info(" >> 非法请求: " + requestUrl + " 签名信息不正确");
-					pass = false;
+					return SignOutcome.SIGN_INVALID;
 				}
-				if (pass) {
-					// 签名时间和服务器时间相差10分钟以上则认为是过期请求，此时间可以配置
-					if ((System.currentTimeMillis() - curSignTime) > signObj.getSignExpireTime() * this.signExpireTime) {
-						log.info(" >> 非法请求:" + requestUrl + " 请求已过期");
-						result.setStatus(ErrorCodeEnum.SIGN_TIME_OUT.getCode());
-						result.setMessage("非法请求：请求已过期.");
-						pass = false;
-					}
+				if (this.claimsCache != null && !this.isOutOfTime(claims.getSignTime(), now, expireMillis)) {
+					this.claimsCache.put(sign, claims, claims.getSignTime() + expireMillis);
 				}
-				if (pass) {
-					// POST请求只处理时间
-					// GET请求处理参数和时间(参数信息需要在签名信息中才行)
-					if(validateParameter && httpServletRequest.getMethod().equals(HttpMethod.GET.name())) {
-						Set<String> paramsSet = signInfo.keySet();
-						for (String key : paramsSet) {
-							if (!"signTime".equals(key)) {
-								String signValue = signInfo.get(key).toString();
-								String reqValue = httpServletRequest.getQueryParams().getFirst(key);
-								//签名信息中的参数和请求参数进行比较 看是否一至
-								if (!signValue.equals(reqValue)) {
-									log.info(" >> 非法请求:" + requestUrl + " 参数被篡改");
-									result.setStatus(ErrorCodeEnum.SIGN_INVALID.getCode());
-									result.setMessage("非法请求：参数被篡改.");
-									pass = false;
-								}
-							}
-						}
-					}
+			}
+			long phase = this.metrics.start();
+			// 签名时间和服务器时间相差10分钟以上则认为是过期请求，此时间可以配置; 签名时间超前太多同样拒绝
+			if (this.isOutOfTime(claims.getSignTime(), now, expireMillis)) {
+				log.info(" >> 非法请求:" + requestUrl + " 请求已过期");
+				return SignOutcome.SIGN_TIME_OUT;
+			}
+			phase = this.metrics.record(SignMetrics.Phase.EXPIRY, phase);
+			// POST请求只处理时间
+			// GET请求处理参数和时间(参数信息需要在签名信息中才行)
+			if (claims.isParameter() && policy == SignPolicy.FULL && httpServletRequest.getMethod() == HttpMethod.GET) {
+				boolean match = this.checkParameters(httpServletRequest, claims);
+				this.metrics.record(SignMetrics.Phase.PARAMETER, phase);
+				if (!match) {
+					log.info(" >> 非法请求:" + requestUrl + " 参数被篡改");
+					return SignOutcome.PARAMETER_TAMPERED;
 				}
-				log.info(" >> " + requestUrl +" 签名校验通过....  ");
-			} catch (Exception e) {
-				log.info(" >> 非法请求:" + requestUrl + " 签名校验错误.");
-				e.printStackTrace();
 			}
+			return this.checkReplay(requestUrl, sign, now);
+		} catch (Exception e) {
+			log.info(" >> 非法请求:" + requestUrl + " 签名校验错误.");
+			log.debug(" >> 签名校验错误", e);
+			return SignOutcome.DECRYPT_ERROR;
 		}
-		if (!pass) {
-			byte[] datas = JsonUtils.toJson(result).getBytes(StandardCharsets.UTF_8);
-			DataBuffer buffer = httpServletResponse.bufferFactory().wrap(datas);
-			httpServletResponse.setStatusCode(HttpStatus.UNAUTHORIZED);
-			httpServletResponse.getHeaders().add("Content-Type", "application/json;charset=UTF-8");
-			return httpServletResponse.writeWith(Mono.just(buffer));
+	}
+
+	/**
+	 * 签名时间是否超出有效期: 早于 now - expireMillis, 或晚于 now + clockSkew
+	 * @param signTime 签名时间
+	 * @param now 当前时间
+	 * @param expireMillis 签名有效期
+	 * @return
+	 */
+	private boolean isOutOfTime(long signTime, long now, long expireMillis) {
+		return now - signTime > expireMillis || signTime - now > this.clockSkewMillis;
+	}
+
+	/**
+	 * 防重放需要记住签名的时长: 签名时间最多超前 clockSkew, 之后还有完整的有效期
+	 * @return
+	 */
+	private long replayWindowMillis() {
+		return this.tenantRegistry.getMaxSignExpireMillis() + this.clockSkewMillis;
+	}
+
+	/**
+	 * 校验 HMAC 签名
+	 * @param httpServletRequest
+	 * @param requestUrl
+	 * @param tenant 请求所属应用的签名密钥
+	 * @param sign 请求头中的签名
+	 * @return
+	 */
+	private SignOutcome verifyHmac(ServerHttpRequest httpServletRequest, String requestUrl, SignTenant tenant, String sign) {
+		HttpHeaders headers = httpServletRequest.getHeaders();
+		byte[] signature = HmacSignUtils.parseSignature(sign);
+		String signTimeText = headers.getFirst(HmacSignUtils.SIGN_TIME_HEADER);
+		if (signature == null || !StringUtils.hasText(signTimeText)) {
+			log.info(" >> 非法请求: " + requestUrl + " HMAC 签名格式错误");
+			return SignOutcome.SIGN_INVALID;
 		}
-		return chain.filter(exchange);
+		long signTime;
+		try {
+			signTime = Long.parseLong(signTimeText.trim());
+		} catch (NumberFormatException e) {
+			log.info(" >> 非法请求: " + requestUrl + " 签名时间格式错误");
+			return SignOutcome.SIGN_INVALID;
+		}
+		long now = System.currentTimeMillis();
+		if (this.isOutOfTime(signTime, now, tenant.getSignExpireMillis())) {
+			log.info(" >> 非法请求:" + requestUrl + " 请求已过期");
+			return SignOutcome.SIGN_TIME_OUT;
+		}
+		long phase = this.metrics.start();
+		byte[] canonical = HmacSignUtils.canonicalRequest(httpServletRequest.getMethodValue(), requestUrl,
+				httpServletRequest.getURI().getRawQuery(), signTime, headers.getFirst(HmacSignUtils.BODY_DIGEST_HEADER));
+		// 密钥轮换的宽限期内先尝试 keyId 指明的密钥, 再尝试另一个密钥
+		SignTenant first = tenant.select(headers.getFirst(SignTenantRegistry.KEY_ID_HEADER), now);
+		boolean valid = first.getHmacEngine().verify(canonical, 0, canonical.length, signature);
+		if (!valid) {
+			SignTenant graceKey = tenant.getGraceKey(now);
+			SignTenant second = first == tenant ? graceKey : tenant;
+			valid = second != null && second.getHmacEngine().verify(canonical, 0, canonical.length, signature);
+		}
+		this.metrics.record(SignMetrics.Phase.HMAC, phase);
+		if (!valid) {
+			log.info(" >> 非法请求: " + requestUrl + " HMAC 签名不正确");
+			return SignOutcome.SIGN_INVALID;
+		}
+		return this.checkReplay(requestUrl, sign, now);
+	}
+
+	/**
+	 * 签名校验通过后的防重放检查. 防重放的时间桶已满时无法判断是否重放, 按服务繁忙(503)拒绝, 不放行
+	 * @param requestUrl
+	 * @param sign 请求头中的签名
+	 * @param now 当前时间
+	 * @return
+	 */
+	private SignOutcome checkReplay(String requestUrl, String sign, long now) {
+		if (this.replayGuard != null) {
+			SignReplayGuard.Result result = this.replayGuard.check(sign, now, this.replayWindowMillis());
+			if (result == SignReplayGuard.Result.REPLAYED) {
+				log.info(" >> 非法请求:" + requestUrl + " 签名重复使用");
+				return SignOutcome.REPLAYED;
+			}
+			if (result == SignReplayGuard.Result.FULL) {
+				log.warn(" >> " + requestUrl + " 防重放记录已满, 拒绝请求");
+				return SignOutcome.OVERLOADED;
+			}
+		}
+		log.info(" >> " + requestUrl +" 签名校验通过....  ");
+		return SignOutcome.PASS;
+	}
+
+	/**
+	 * 客户端地址的哈希, 只使用连接的对端地址, 不信任 X-Forwarded-For 等可以伪造的请求头
+	 * @param httpServletRequest
+	 * @return
+	 */
+	private int clientAddress(ServerHttpRequest httpServletRequest) {
+		InetSocketAddress remoteAddress = httpServletRequest.getRemoteAddress();
+		return remoteAddress == null || remoteAddress.getAddress() == null ? 0 : remoteAddress.getAddress().hashCode();
+	}
+
+	/**
+	 * 请求是否可能带有请求体. 没有 Content-Length 时 (HTTP/2 可以不带) GET、HEAD 以外的请求都按有请求体处理
+	 * @param httpServletRequest
+	 * @return
+	 */
+	private boolean hasBody(ServerHttpRequest httpServletRequest) {
+		HttpHeaders headers = httpServletRequest.getHeaders();
+		long contentLength = headers.getContentLength();
+		if (contentLength > 0L || headers.containsKey(HttpHeaders.TRANSFER_ENCODING)
+				|| headers.containsKey(HmacSignUtils.BODY_DIGEST_HEADER)) {
+			return true;
+		}
+		HttpMethod method = httpServletRequest.getMethod();
+		return contentLength < 0L && method != HttpMethod.GET && method != HttpMethod.HEAD;
+	}
+
+	/**
+	 * 解密签名信息, 密钥轮换的宽限期内先尝试 keyId 指明的密钥, 失败后再尝试另一个密钥
+	 * @param sign 请求头中的签名
+	 * @param tenant 请求所属应用的签名密钥
+	 * @param keyId 请求头中的密钥标识, 可以为 null
+	 * @param now 当前时间
+	 * @return 密钥都不正确时返回 null
+	 * @throws Exception
+	 */
+	private SignClaims decryptClaims(String sign, SignTenant tenant, String keyId, long now) throws Exception {
+		SignTenant graceKey = tenant.getGraceKey(now);
+		if (graceKey == null) {
+			return this.decryptClaims(sign, tenant);
+		}
+		SignTenant first = tenant.select(keyId, now);
+		SignTenant second = first == tenant ? graceKey : tenant;
+		try {
+			SignClaims claims = this.decryptClaims(sign, first);
+			if (claims != null) {
+				return claims;
+			}
+		} catch (Exception e) {
+			log.debug(" >> 密钥 {} 解密失败, 尝试密钥 {}", first.getKeyId(), second.getKeyId());
+		}
+		return this.decryptClaims(sign, second);
+	}
+
+	/**
+	 * 解密签名信息并校验密钥
+	 * @param sign 请求头中的签名
+	 * @param tenant 用来解密的密钥
+	 * @return 密钥不正确时返回 null
+	 * @throws Exception
+	 */
+	private SignClaims decryptClaims(String sign, SignTenant tenant) throws Exception {
+		long phase = this.metrics.start();
+		boolean sealed = SignTokenFormat.isSealed(sign);
+		// 明文在当前线程的缓冲区中, 直接按字节解析
+		ByteBuffer decryptBody = AesEncryptUtils.base64DecodeToBuffer(sealed ? SignTokenFormat.sealedPayload(sign) : sign);
+		phase = this.metrics.record(SignMetrics.Phase.DECODE, phase);
+		if (sealed) {
+			// 认证失败抛出 AEADBadTagException
+			tenant.getGcmEngine().decryptInPlace(decryptBody);
+		} else {
+			AesEncryptUtils.aesDecryptInPlace(decryptBody, tenant.getEngine());
+		}
+		phase = this.metrics.record(SignMetrics.Phase.DECRYPT, phase);
+		byte[] data = decryptBody.array();
+		int offset = decryptBody.arrayOffset() + decryptBody.position();
+		int length = decryptBody.remaining();
+		// 二进制格式只接受 AES-GCM 加密的, ECB 密文可以被拼接或截断; JSON 格式通过 secret 字段校验密钥
+		boolean binary = SignTokenDecoder.isBinary(data, offset, length);
+		if (binary != sealed) {
+			throw new IllegalArgumentException(sealed ? "AES-GCM 签名信息必须是二进制格式" : "二进制签名信息必须使用 AES-GCM 加密");
+		}
+		SignClaims claims = binary
+				? SignTokenDecoder.decode(data, offset, length, tenant)
+				: SignClaimsParser.parse(data, offset, length, tenant);
+		this.metrics.record(SignMetrics.Phase.PARSE, phase);
+		return claims;
+	}
+
+	/**
+	 * 签名信息中的参数和请求参数进行比较 看是否一至
+	 * @param httpServletRequest
+	 * @param claims
+	 * @return
+	 */
+	private boolean checkParameters(ServerHttpRequest httpServletRequest, SignClaims claims) {
+		if (claims.hasQueryDigest()) {
+			// 一次扫描原始查询字符串, 不解析为 Map
+			return claims.matchesQuery(httpServletRequest.getURI().getRawQuery());
+		}
+		MultiValueMap<String, String> queryParams = httpServletRequest.getQueryParams();
+		for (int i = 0; i < claims.getParamCount(); i++) {
+			String signValue = claims.getParamValue(i);
+			String reqValue = queryParams.getFirst(claims.getParamName(i));
+			if (reqValue == null && !claims.isParamRequired(i)) {
+				// 签名信息字段, 请求中没有同名参数时不比较
+				continue;
+			}
+			if (signValue == null || !signValue.equals(reqValue)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 }
@@ -0,0 +1,106 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/***
+ * 已缓存并可以校验摘要的请求
+ *
+ * HMAC 签名覆盖 bodyDigest 时, 请求体必须在转发给下游之前完成校验, 所以先把请求体读入一个缓冲区(有大小上限),
+ * 摘要一致后再把这个缓冲区作为请求体转发. 没有 bodyDigest 时请求体必须为空.
+ * @author ljy
+ */
+final class SignBodyDigestRequest extends ServerHttpRequestDecorator {
+
+    /** 缓存的请求体, 转发后由下游释放 */
+    private final DataBuffer body;
+
+    private SignBodyDigestRequest(ServerHttpRequest delegate, DataBuffer body) {
+        super(delegate);
+        this.body = body;
+    }
+
+    /**
+     * 读取并缓存请求体
+     * @param request 原始请求
+     * @param bufferFactory
+     * @param maxSize 请求体最大字节数, 超过时以 413 的 ResponseStatusException 结束
+     * @return
+     */
+    static Mono<SignBodyDigestRequest> read(ServerHttpRequest request, DataBufferFactory bufferFactory, int maxSize) {
+        return Mono.defer(() -> {
+            long contentLength = request.getHeaders().getContentLength();
+            DataBuffer aggregate = bufferFactory.allocateBuffer(contentLength > 0 ? (int) Math.min(contentLength, maxSize) : 256);
+            // 请求体交给下游之后不能再释放
+            boolean[] emitted = {false};
+            return request.getBody()
+                    .reduce(aggregate, (result, buffer) -> {
+                        try {
+                            if (result.readableByteCount() + buffer.readableByteCount() > maxSize) {
+                                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "请求体超过大小限制.");
+                            }
+                            return result.write(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .doOnError(e -> DataBufferUtils.release(aggregate))
+                    .doOnCancel(() -> {
+                        if (!emitted[0]) {
+                            DataBufferUtils.release(aggregate);
+                        }
+                    })
+                    .map(result -> {
+                        emitted[0] = true;
+                        return new SignBodyDigestRequest(request, result);
+                    });
+        });
+    }
+
+    /**
+     * 请求体是否与 HMAC 签名覆盖的摘要一致
+     * @param expected 请求头中的 bodyDigest, 没有时为 null
+     * @return
+     */
+    boolean matches(String expected) {
+        if (expected == null) {
+            return this.body.readableByteCount() == 0;
+        }
+        MessageDigest digest = newDigest();
+        digest.update(this.body.asByteBuffer());
+        return MessageDigest.isEqual(expected.trim().getBytes(StandardCharsets.US_ASCII),
+                Base64.getEncoder().encode(digest.digest()));
+    }
+
+    /**
+     * 校验失败时释放缓存的请求体
+     */
+    void release() {
+        DataBufferUtils.release(this.body);
+    }
+
+    @Override
+    public Flux<DataBuffer> getBody() {
+        return Flux.just(this.body);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
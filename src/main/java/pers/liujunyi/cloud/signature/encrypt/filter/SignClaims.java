@@ -0,0 +1,109 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import pers.liujunyi.cloud.signature.encrypt.CanonicalQuery;
+import pers.liujunyi.cloud.signature.encrypt.SignTenant;
+
+/***
+ * 解密并校验过密钥的签名信息
+ * @author ljy
+ */
+@Getter
+public final class SignClaims {
+
+    /** 签名时间戳 */
+    private final long signTime;
+
+    /** 是否需要校验请求参数 */
+    private final boolean parameter;
+
+    /** 校验签名时使用的应用密钥, 密钥更新后旧的校验结果不再可用 */
+    private final SignTenant tenant;
+
+    /**
+     * 签名信息中除 signTime 以外的参数名, 前 requiredCount 个是普通参数,
+     * 之后是 JSON 签名信息中的 secret、parameter、queryDigest 字段
+     */
+    @Getter(AccessLevel.NONE)
+    private final String[] paramNames;
+
+    /** 与 paramNames 一一对应的参数值, 值为 null、对象或数组时为 null */
+    @Getter(AccessLevel.NONE)
+    private final String[] paramValues;
+
+    /** 请求中必须携带的参数个数 */
+    @Getter(AccessLevel.NONE)
+    private final int requiredCount;
+
+    /** 查询参数规范形式的 SHA-256 摘要, 没有时为 null */
+    @Getter(AccessLevel.NONE)
+    private final byte[] queryDigest;
+
+    SignClaims(SignTenant tenant, long signTime, boolean parameter, String[] paramNames, String[] paramValues, byte[] queryDigest) {
+        this(tenant, signTime, parameter, paramNames, paramValues, paramNames.length, queryDigest);
+    }
+
+    SignClaims(SignTenant tenant, long signTime, boolean parameter, String[] paramNames, String[] paramValues,
+               int requiredCount, byte[] queryDigest) {
+        this.tenant = tenant;
+        this.signTime = signTime;
+        this.parameter = parameter;
+        this.paramNames = paramNames;
+        this.paramValues = paramValues;
+        this.requiredCount = requiredCount;
+        this.queryDigest = queryDigest;
+    }
+
+    /**
+     * 是否携带查询参数摘要
+     * @return
+     */
+    public boolean hasQueryDigest() {
+        return this.queryDigest != null;
+    }
+
+    /**
+     * 查询参数是否与签名时一致
+     * @param rawQuery 原始查询字符串
+     * @return
+     */
+    public boolean matchesQuery(String rawQuery) {
+        return CanonicalQuery.matches(rawQuery, this.queryDigest);
+    }
+
+    /**
+     * 参数个数
+     * @return
+     */
+    public int getParamCount() {
+        return this.paramNames.length;
+    }
+
+    /**
+     * 第 index 个参数名
+     * @param index
+     * @return
+     */
+    public String getParamName(int index) {
+        return this.paramNames[index];
+    }
+
+    /**
+     * 第 index 个参数值
+     * @param index
+     * @return
+     */
+    public String getParamValue(int index) {
+        return this.paramValues[index];
+    }
+
+    /**
+     * 第 index 个参数是否必须出现在请求中, secret 等签名信息字段只在请求携带同名参数时比较
+     * @param index
+     * @return
+     */
+    public boolean isParamRequired(int index) {
+        return index < this.requiredCount;
+    }
+}
@@ -0,0 +1,236 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * 签名校验结果缓存
+ *
+ * 以完整的 sign 请求头为键, 缓存已解密并通过密钥校验的签名信息, 条目在 signTime + 有效期 时过期.
+ * 同一个签名在有效期内重复使用时只需要一次哈希查找, 不再重复 AES 解密和 JSON 解析.<br>
+ *
+ * 淘汰策略参考 TinyLFU: 分段 LRU 决定淘汰候选, 每个分段维护一个计数衰减的 Count-Min 频率草图,
+ * 只有新条目的访问频率高于候选时才会替换它, 避免一次性的签名把热点签名挤出缓存.
+ * @author ljy
+ */
+public final class SignClaimsCache {
+
+    /** 分段数 */
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize 缓存条目上限
+     */
+    public SignClaimsCache(int maximumSize) {
+        int segmentSize = Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS);
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * 获取未过期的签名信息
+     * @param sign 请求头中的签名
+     * @param now 当前时间戳
+     * @return 未命中返回 null
+     */
+    public SignClaims get(String sign, long now) {
+        int hash = spread(sign.hashCode());
+        SignClaims claims = segmentFor(hash).get(sign, hash, now);
+        if (claims == null) {
+            this.misses.increment();
+        } else {
+            this.hits.increment();
+        }
+        return claims;
+    }
+
+    /**
+     * 缓存签名信息
+     * @param sign 请求头中的签名
+     * @param claims 签名信息
+     * @param expireAt 过期时间戳
+     */
+    public void put(String sign, SignClaims claims, long expireAt) {
+        int hash = spread(sign.hashCode());
+        if (segmentFor(hash).put(sign, hash, claims, expireAt)) {
+            this.evictions.increment();
+        }
+    }
+
+    /**
+     * 清空缓存, 密钥变更时调用
+     */
+    public void clear() {
+        for (Segment segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : this.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentFor(int hash) {
+        return this.segments[(hash >>> 28) & (SEGMENTS - 1)];
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+        final SignClaims claims;
+        final long expireAt;
+
+        Entry(SignClaims claims, long expireAt) {
+            this.claims = claims;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 分段: 访问顺序的 LinkedHashMap + 频率草图
+     */
+    private static final class Segment {
+        final LinkedHashMap<String, Entry> map;
+        final FrequencySketch sketch;
+        final int maximumSize;
+
+        Segment(int maximumSize) {
+            this.maximumSize = maximumSize;
+            this.map = new LinkedHashMap<>(16, 0.75f, true);
+            this.sketch = new FrequencySketch(maximumSize);
+        }
+
+        synchronized SignClaims get(String sign, int hash, long now) {
+            this.sketch.increment(hash);
+            Entry entry = this.map.get(sign);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt < now) {
+                this.map.remove(sign);
+                return null;
+            }
+            return entry.claims;
+        }
+
+        /**
+         * @return 是否淘汰了其他条目
+         */
+        synchronized boolean put(String sign, int hash, SignClaims claims, long expireAt) {
+            if (this.map.containsKey(sign) || this.map.size() < this.maximumSize) {
+                this.map.put(sign, new Entry(claims, expireAt));
+                return false;
+            }
+            Iterator<Map.Entry<String, Entry>> iterator = this.map.entrySet().iterator();
+            Map.Entry<String, Entry> victim = iterator.next();
+            boolean expired = victim.getValue().expireAt < System.currentTimeMillis();
+            if (!expired && this.sketch.frequency(hash) <= this.sketch.frequency(spread(victim.getKey().hashCode()))) {
+                // 新条目不如候选常用, 不进入缓存
+                return false;
+            }
+            iterator.remove();
+            this.map.put(sign, new Entry(claims, expireAt));
+            return true;
+        }
+
+        synchronized void clear() {
+            this.map.clear();
+        }
+
+        synchronized int size() {
+            return this.map.size();
+        }
+    }
+
+    /**
+     * 4 行 Count-Min 草图, 计数上限 15, 累计次数达到 10 倍容量时整体减半
+     */
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97CB3127, 0xB3A2A2C5, 0x85EBCA6B, 0xC2B2AE35};
+        private static final int MAX_COUNT = 15;
+
+        final byte[][] rows = new byte[SEEDS.length][];
+        final int mask;
+        final int sampleSize;
+        int additions;
+
+        FrequencySketch(int maximumSize) {
+            int width = 16;
+            while (width < maximumSize * 2) {
+                width <<= 1;
+            }
+            for (int i = 0; i < SEEDS.length; i++) {
+                this.rows[i] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = Math.max(10 * maximumSize, 160);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                if (this.rows[i][index] < MAX_COUNT) {
+                    this.rows[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++this.additions >= this.sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, this.rows[i][indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[row];
+            return (h ^ (h >>> 15)) & this.mask;
+        }
+
+        private void reset() {
+            for (byte[] row : this.rows) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            this.additions /= 2;
+        }
+    }
+}
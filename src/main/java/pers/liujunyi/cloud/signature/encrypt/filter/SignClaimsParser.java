@@ -0,0 +1,194 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import pers.liujunyi.cloud.signature.encrypt.CanonicalQuery;
+import pers.liujunyi.cloud.signature.encrypt.SignTenant;
+import pers.liujunyi.cloud.signature.util.JsonUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/***
+ * 签名信息解析器
+ *
+ * 直接遍历解密后的 JSON 字节流, signTime、secret、parameter、queryDigest 解析到固定字段, 其他参数按顺序放入名称/值数组,
+ * 不创建中间 Map, 也不对数值装箱. secret 在解析器的字符缓冲区中直接比较, 不创建字符串.<br>
+ * secret、parameter、queryDigest 同时追加到参数数组末尾, 请求携带同名参数时仍然参与比较, 与原来只排除 signTime 的行为一致.<br>
+ * 字段缺失或类型不正确时抛出带字段名的 IllegalArgumentException.
+ * @author ljy
+ */
+final class SignClaimsParser {
+
+    static final String SIGN_TIME = "signTime";
+
+    static final String SECRET = "secret";
+
+    static final String PARAMETER = "parameter";
+
+    static final String QUERY_DIGEST = "queryDigest";
+
+    /** 解析出错时异常信息中不带原文, 避免把解密后的 secret 打印到日志 */
+    private static final JsonFactory FACTORY = JsonUtils.getMapper().getFactory().copy()
+            .disable(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION);
+
+    /** 每个线程复用的参数缓冲区, 解析完成后按实际个数复制 */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private SignClaimsParser() { }
+
+    /**
+     * 解析签名信息并校验密钥
+     * @param data 解密后的签名信息
+     * @param offset 起始位置
+     * @param length 长度
+     * @param tenant 解密使用的密钥
+     * @return 密钥不正确时返回 null
+     * @throws IOException JSON 格式错误
+     * @throws IllegalArgumentException 字段缺失或类型不正确
+     */
+    static SignClaims parse(byte[] data, int offset, int length, SignTenant tenant) throws IOException {
+        Scratch scratch = SCRATCH.get();
+        int count = 0;
+        long signTime = 0L;
+        boolean hasSignTime = false;
+        Boolean parameter = null;
+        boolean secretMatched = false;
+        byte[] queryDigest = null;
+        String queryDigestText = null;
+        try (JsonParser parser = FACTORY.createParser(data, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("签名信息不是 JSON 对象");
+            }
+            String name;
+            while ((name = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                if (SIGN_TIME.equals(name)) {
+                    if (!token.isNumeric()) {
+                        throw new IllegalArgumentException("签名信息字段 signTime 必须是数字");
+                    }
+                    signTime = parser.getLongValue();
+                    hasSignTime = true;
+                } else if (SECRET.equals(name)) {
+                    secretMatched = token == JsonToken.VALUE_STRING && matches(parser, tenant.getSecretKey());
+                } else if (PARAMETER.equals(name)) {
+                    if (!token.isBoolean()) {
+                        throw new IllegalArgumentException("签名信息字段 parameter 必须是 true 或 false");
+                    }
+                    parameter = token == JsonToken.VALUE_TRUE;
+                } else if (QUERY_DIGEST.equals(name)) {
+                    queryDigestText = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    queryDigest = queryDigest(queryDigestText);
+                } else {
+                    count = scratch.add(count, name, text(parser, token));
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new IllegalArgumentException("签名信息格式错误");
+            }
+            if (!secretMatched) {
+                return null;
+            }
+            if (!hasSignTime) {
+                throw new IllegalArgumentException("签名信息缺少字段 signTime");
+            }
+            if (parameter == null) {
+                throw new IllegalArgumentException("签名信息缺少字段 parameter");
+            }
+            int requiredCount = count;
+            // 密钥已经比较过, 直接使用应用密钥作为 secret 的值
+            count = scratch.add(count, SECRET, tenant.getSecretKey());
+            count = scratch.add(count, PARAMETER, parameter.toString());
+            if (queryDigestText != null) {
+                count = scratch.add(count, QUERY_DIGEST, queryDigestText);
+            }
+            return new SignClaims(tenant, signTime, parameter, Arrays.copyOf(scratch.names, count),
+                    Arrays.copyOf(scratch.values, count), requiredCount, queryDigest);
+        } finally {
+            scratch.clear(count);
+        }
+    }
+
+    /**
+     * BASE64 编码的查询参数摘要
+     */
+    private static byte[] queryDigest(String text) {
+        byte[] digest = null;
+        try {
+            digest = text == null ? null : Base64.getDecoder().decode(text);
+        } catch (IllegalArgumentException e) {
+            // 下面统一抛出
+        }
+        if (digest == null || digest.length != CanonicalQuery.DIGEST_LENGTH) {
+            throw new IllegalArgumentException("签名信息字段 queryDigest 必须是 BASE64 编码的 SHA-256 摘要");
+        }
+        return digest;
+    }
+
+    /**
+     * 参数值的文本形式, null、对象和数组返回 null, 与任何请求参数都不相等
+     */
+    private static String text(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+            case VALUE_NUMBER_INT:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return parser.getText();
+            case VALUE_NUMBER_FLOAT:
+                // 与解析为 Double 后 toString 的结果保持一致
+                return String.valueOf(parser.getDoubleValue());
+            case START_OBJECT:
+            case START_ARRAY:
+                parser.skipChildren();
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean matches(JsonParser parser, String expected) throws IOException {
+        int length = parser.getTextLength();
+        if (length != expected.length()) {
+            return false;
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        for (int i = 0; i < length; i++) {
+            if (chars[offset + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 参数缓冲区
+     */
+    private static final class Scratch {
+        private String[] names = new String[16];
+        private String[] values = new String[16];
+
+        void ensureCapacity(int size) {
+            if (size > this.names.length) {
+                this.names = Arrays.copyOf(this.names, this.names.length * 2);
+                this.values = Arrays.copyOf(this.values, this.values.length * 2);
+            }
+        }
+
+        int add(int count, String name, String value) {
+            ensureCapacity(count + 1);
+            this.names[count] = name;
+            this.values[count] = value;
+            return count + 1;
+        }
+
+        void clear(int count) {
+            // 不持有上一个请求的参数
+            Arrays.fill(this.names, 0, Math.min(count, this.names.length), null);
+            Arrays.fill(this.values, 0, Math.min(count, this.values.length), null);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/***
+ * 签名校验失败限流
+ *
+ * 按客户端 IP(连接的对端地址)统计签名校验失败次数, 失败过多的客户端在解密之前直接拒绝, 直到失败额度恢复.
+ * 不使用 appId 等客户端可以随意填写的请求头, 否则一个客户端换着 appId 就能绕开自己的额度, 还能占满所有槽位.
+ * 网关部署在负载均衡后面时, 所有客户端的对端地址都是负载均衡的地址, 会共享同一份额度.<br>
+ * 使用 GCRA(通用信元速率算法): 每个槽位只保存一个理论到达时间(TAT), 每次失败 TAT 向后推一个恢复间隔,
+ * TAT 超出当前时间达到一个突发容量时拒绝; 查询只有一次 volatile 读, 记录失败是一次 CAS.<br>
+ * 客户端按哈希分散到固定数量的槽位, 不随客户端数量增长, 哈希冲突的客户端共享额度.
+ * @author ljy
+ */
+public final class SignFailureLimiter {
+
+    /** 理论到达时间, 单位毫秒, 0 表示没有失败记录 */
+    private final AtomicLongArray slots;
+
+    private final int mask;
+
+    /** 每恢复一次失败额度需要的时间(毫秒) */
+    private final long intervalMillis;
+
+    /** 允许的突发失败次数对应的时间(毫秒) */
+    private final long burstMillis;
+
+    /**
+     * @param burst 允许连续失败的次数
+     * @param perMinute 每分钟恢复的失败额度
+     * @param stripes 槽位数, 向上取整为 2 的幂
+     */
+    public SignFailureLimiter(int burst, int perMinute, int stripes) {
+        if (burst < 1 || perMinute < 1 || stripes < 1) {
+            throw new IllegalArgumentException("burst、perMinute、stripes 必须大于 0");
+        }
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalMillis = Math.max(1L, 60000L / perMinute);
+        this.burstMillis = this.intervalMillis * burst;
+    }
+
+    /**
+     * 客户端标识
+     * @param address 客户端地址的哈希, 没有时为 0
+     * @return
+     */
+    public static int key(int address) {
+        int hash = address;
+        // 打散低位, 槽位按低位取
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    /**
+     * 客户端是否因为失败过多被拒绝
+     * @param key 客户端标识
+     * @param now 当前时间戳
+     * @return
+     */
+    public boolean isBlocked(int key, long now) {
+        return this.slots.get(key & this.mask) - now >= this.burstMillis;
+    }
+
+    /**
+     * 记录一次失败
+     * @param key 客户端标识
+     * @param now 当前时间戳
+     */
+    public void recordFailure(int key, long now) {
+        int index = key & this.mask;
+        long tat;
+        long next;
+        do {
+            tat = this.slots.get(index);
+            if (tat - now >= this.burstMillis) {
+                // 已经处于拒绝状态, 不再累加, 额度恢复时间最多为一个突发容量
+                return;
+            }
+            next = Math.max(tat, now) + this.intervalMillis;
+        } while (!this.slots.compareAndSet(index, tat, next));
+    }
+}
@@ -0,0 +1,161 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * 签名校验指标
+ *
+ * 各阶段耗时(sign.filter.phase, 带直方图)和各结果计数(sign.filter.requests), 通过 actuator 暴露.
+ * data.sign.metrics.enabled=false (默认) 或没有 MeterRegistry 时所有方法直接返回, 不会调用 System.nanoTime.
+ * @author ljy
+ */
+@Log4j2
+@Component
+public class SignMetrics {
+
+    /**
+     * 签名校验阶段
+     */
+    public enum Phase {
+        /** 路径规则匹配 */
+        MATCH,
+        /** BASE64 解码 */
+        DECODE,
+        /** AES 解密 */
+        DECRYPT,
+        /** JSON 解析 */
+        PARSE,
+        /** 过期校验 */
+        EXPIRY,
+        /** 参数校验 */
+        PARAMETER,
+        /** HMAC 签名计算 */
+        HMAC
+    }
+
+    @Value("${data.sign.metrics.enabled:false}")
+    private boolean enabled;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> registryProvider;
+
+    private MeterRegistry registry;
+
+    private Timer[] timers;
+
+    private Counter[] counters;
+
+    @PostConstruct
+    public void init() {
+        this.registry = this.enabled ? this.registryProvider.getIfAvailable() : null;
+        if (this.registry == null) {
+            this.enabled = false;
+            return;
+        }
+        this.timers = new Timer[Phase.values().length];
+        for (Phase phase : Phase.values()) {
+            this.timers[phase.ordinal()] = Timer.builder("sign.filter.phase")
+                    .description("签名校验各阶段耗时")
+                    .tag("phase", phase.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(this.registry);
+        }
+        this.counters = new Counter[SignOutcome.values().length];
+        for (SignOutcome outcome : SignOutcome.values()) {
+            this.counters[outcome.ordinal()] = Counter.builder("sign.filter.requests")
+                    .description("签名校验结果计数")
+                    .tag("outcome", outcome.name())
+                    .register(this.registry);
+        }
+        log.info(">> 签名校验指标已开启");
+    }
+
+    /**
+     * 开始计时
+     * @return 当前纳秒时间, 未开启时返回 0
+     */
+    public long start() {
+        return this.enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     * @param phase 阶段
+     * @param start 阶段开始时间
+     * @return 当前纳秒时间, 可作为下一个阶段的开始时间
+     */
+    public long record(Phase phase, long start) {
+        if (!this.enabled) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        this.timers[phase.ordinal()].record(now - start, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    /**
+     * 记录校验结果
+     * @param outcome 校验结果
+     */
+    public void outcome(SignOutcome outcome) {
+        if (this.enabled) {
+            this.counters[outcome.ordinal()].increment();
+        }
+    }
+
+    /**
+     * 注册签名校验结果缓存的指标
+     * @param cache 缓存
+     */
+    public void bindCache(SignClaimsCache cache) {
+        if (!this.enabled || cache == null) {
+            return;
+        }
+        FunctionCounter.builder("sign.filter.cache", cache, SignClaimsCache::getHitCount)
+                .tag("result", "hit").register(this.registry);
+        FunctionCounter.builder("sign.filter.cache", cache, SignClaimsCache::getMissCount)
+                .tag("result", "miss").register(this.registry);
+        FunctionCounter.builder("sign.filter.cache.evictions", cache, SignClaimsCache::getEvictionCount)
+                .register(this.registry);
+        Gauge.builder("sign.filter.cache.size", cache, SignClaimsCache::size)
+                .register(this.registry);
+    }
+
+    /**
+     * 注册签名防重放的指标
+     * @param replayGuard 防重放
+     */
+    public void bindReplayGuard(SignReplayGuard replayGuard) {
+        if (!this.enabled || replayGuard == null) {
+            return;
+        }
+        FunctionCounter.builder("sign.filter.replay.overflows", replayGuard, SignReplayGuard::getOverflowCount)
+                .register(this.registry);
+    }
+
+    /**
+     * 注册签名校验线程池的指标
+     * @param scheduler 校验线程池
+     */
+    public void bindScheduler(SignVerifyScheduler scheduler) {
+        if (!this.enabled || scheduler == null) {
+            return;
+        }
+        FunctionCounter.builder("sign.filter.offload.rejected", scheduler, SignVerifyScheduler::getRejectedCount)
+                .register(this.registry);
+        Gauge.builder("sign.filter.offload.queue", scheduler, SignVerifyScheduler::getQueueSize)
+                .register(this.registry);
+    }
+}
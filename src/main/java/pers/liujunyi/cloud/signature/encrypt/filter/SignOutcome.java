@@ -0,0 +1,74 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import org.springframework.http.HttpStatus;
+import pers.liujunyi.cloud.signature.exception.ErrorCodeEnum;
+
+/***
+ * 签名校验结果
+ * @author ljy
+ */
+public enum SignOutcome {
+
+    /** 校验通过 */
+    PASS(null, null, null),
+    /** 路径不需要校验 */
+    SKIPPED(null, null, null),
+    /** 应用不存在 */
+    UNKNOWN_TENANT(ErrorCodeEnum.SIGN_INVALID, "非法请求：应用不存在.", HttpStatus.UNAUTHORIZED),
+    /** 缺少签名 */
+    MISSING_SIGN(ErrorCodeEnum.SIGN_INVALID, "非法请求：数字签名错误.", HttpStatus.UNAUTHORIZED),
+    /** 签名信息不正确 */
+    SIGN_INVALID(ErrorCodeEnum.SIGN_INVALID, "非法请求：数字签名错误.", HttpStatus.UNAUTHORIZED),
+    /** 签名已过期, 或签名时间超前服务器时间超过允许的时钟偏差 */
+    SIGN_TIME_OUT(ErrorCodeEnum.SIGN_TIME_OUT, "非法请求：请求已过期.", HttpStatus.UNAUTHORIZED),
+    /** 参数被篡改 */
+    PARAMETER_TAMPERED(ErrorCodeEnum.SIGN_INVALID, "非法请求：参数被篡改.", HttpStatus.UNAUTHORIZED),
+    /** 请求体与 HMAC 签名覆盖的摘要不一致 */
+    BODY_TAMPERED(ErrorCodeEnum.SIGN_INVALID, "非法请求：请求体被篡改.", HttpStatus.UNAUTHORIZED),
+    /** 需要校验摘要的请求体超过缓存上限 */
+    BODY_TOO_LARGE(ErrorCodeEnum.PAYLOAD_TOO_LARGE, "请求体超过大小限制.", HttpStatus.PAYLOAD_TOO_LARGE),
+    /** 签名重复使用 */
+    REPLAYED(ErrorCodeEnum.SIGN_INVALID, "非法请求：签名已被使用.", HttpStatus.UNAUTHORIZED),
+    /** 签名解密或解析出错 */
+    DECRYPT_ERROR(ErrorCodeEnum.SIGN_INVALID, "非法请求：数字签名错误.", HttpStatus.UNAUTHORIZED),
+    /** 签名校验失败次数过多, 未校验直接拒绝 */
+    RATE_LIMITED(ErrorCodeEnum.TOO_MANY_REQUESTS, "非法请求：签名错误次数过多,请稍后再试.", HttpStatus.TOO_MANY_REQUESTS),
+    /** 签名校验线程池或防重放记录已满, 直接拒绝 */
+    OVERLOADED(ErrorCodeEnum.SERVICE_UNAVAILABLE, "服务繁忙,请稍后再试.", HttpStatus.SERVICE_UNAVAILABLE);
+
+    private final ErrorCodeEnum errorCode;
+
+    private final String message;
+
+    private final HttpStatus status;
+
+    SignOutcome(ErrorCodeEnum errorCode, String message, HttpStatus status) {
+        this.errorCode = errorCode;
+        this.message = message;
+        this.status = status;
+    }
+
+    /**
+     * 是否拒绝请求
+     * @return
+     */
+    public boolean isRejected() {
+        return this.errorCode != null;
+    }
+
+    public ErrorCodeEnum getErrorCode() {
+        return errorCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * 拒绝时的 HTTP 状态码
+     * @return
+     */
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
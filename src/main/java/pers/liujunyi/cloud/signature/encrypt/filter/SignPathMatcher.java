@@ -0,0 +1,349 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/***
+ * 签名校验路径匹配器
+ *
+ * 启动时(以及配置刷新时)将 data.sign.matchStart 中的 ant 风格规则编译成按路径段组织的前缀树,
+ * 请求时对原始路径做一次无对象分配的遍历, 匹配语义与 AntPathMatcher.matchStart 保持一致,
+ * 多条规则同时命中时以配置中靠前的规则为准.<br>
+ *
+ * 规则格式: /api/**,/open/**:time,/api/health:skip
+ * @author ljy
+ */
+public final class SignPathMatcher {
+
+    private static final String PATH_SEPARATOR = "/";
+
+    private static final String DOUBLE_WILDCARD = "**";
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    /** 以 / 开头的规则 */
+    private final Node absoluteRoot = new Node();
+
+    /** 不以 / 开头的规则 */
+    private final Node relativeRoot = new Node();
+
+    /** 按规则顺序存放的策略 */
+    private final SignPolicy[] policies;
+
+    private SignPathMatcher(SignPolicy[] policies) {
+        this.policies = policies;
+    }
+
+    /**
+     * 编译匹配规则
+     * @param matchStarts 逗号分隔的规则, 每条规则可以 ":策略" 结尾
+     * @return
+     */
+    public static SignPathMatcher compile(String matchStarts) {
+        List<String> patterns = new ArrayList<>();
+        List<SignPolicy> policies = new ArrayList<>();
+        if (matchStarts != null) {
+            for (String rule : matchStarts.split(",")) {
+                String pattern = rule.trim();
+                if (pattern.isEmpty()) {
+                    continue;
+                }
+                SignPolicy policy = SignPolicy.FULL;
+                int index = pattern.lastIndexOf(':');
+                if (index > 0 && isPolicyName(pattern.substring(index + 1))) {
+                    policy = SignPolicy.parse(pattern.substring(index + 1));
+                    pattern = pattern.substring(0, index).trim();
+                }
+                patterns.add(pattern);
+                policies.add(policy);
+            }
+        }
+        SignPathMatcher matcher = new SignPathMatcher(policies.toArray(new SignPolicy[0]));
+        for (int rank = 0; rank < patterns.size(); rank++) {
+            matcher.insert(patterns.get(rank), rank);
+        }
+        return matcher;
+    }
+
+    /**
+     * 获取请求路径对应的校验策略, 没有规则命中时返回 SKIP
+     * @param path 原始请求路径
+     * @return
+     */
+    public SignPolicy match(String path) {
+        Node root = path.startsWith(PATH_SEPARATOR) ? this.absoluteRoot : this.relativeRoot;
+        int rank = walk(root, path, 0, path.endsWith(PATH_SEPARATOR), NO_MATCH);
+        return rank == NO_MATCH ? SignPolicy.SKIP : this.policies[rank];
+    }
+
+    /**
+     * 规则条数
+     * @return
+     */
+    public int size() {
+        return this.policies.length;
+    }
+
+    private static boolean isPolicyName(String name) {
+        for (SignPolicy policy : SignPolicy.values()) {
+            if (policy.name().equalsIgnoreCase(name.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insert(String pattern, int rank) {
+        Node node = pattern.startsWith(PATH_SEPARATOR) ? this.absoluteRoot : this.relativeRoot;
+        node.minRank = Math.min(node.minRank, rank);
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.split(PATH_SEPARATOR)) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        for (String segment : segments) {
+            // 路径已经遍历完但规则还有剩余段时 matchStart 视为命中
+            node.prefixRank = Math.min(node.prefixRank, rank);
+            if (DOUBLE_WILDCARD.equals(segment)) {
+                node.anyRank = Math.min(node.anyRank, rank);
+                return;
+            }
+            node = node.child(segment);
+            node.minRank = Math.min(node.minRank, rank);
+        }
+        if (pattern.endsWith(PATH_SEPARATOR)) {
+            node.endSlashRank = Math.min(node.endSlashRank, rank);
+        } else {
+            node.endRank = Math.min(node.endRank, rank);
+        }
+    }
+
+    /**
+     * 从 offset 开始匹配剩余路径, 返回命中规则中最小的序号
+     */
+    private static int walk(Node node, String path, int offset, boolean trailingSlash, int best) {
+        if (node.minRank >= best) {
+            return best;
+        }
+        int length = path.length();
+        int start = offset;
+        while (start < length && path.charAt(start) == '/') {
+            start++;
+        }
+        if (start == length) {
+            best = Math.min(best, node.prefixRank);
+            return Math.min(best, trailingSlash ? node.endSlashRank : node.endRank);
+        }
+        best = Math.min(best, node.anyRank);
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+        Node literal = node.literal(path, start, end);
+        if (literal != null) {
+            best = walk(literal, path, end, trailingSlash, best);
+        }
+        for (int i = 0; i < node.globCount; i++) {
+            if (node.globs[i].matches(path, start, end)) {
+                best = walk(node.globNodes[i], path, end, trailingSlash, best);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 与 String.hashCode 一致的区间哈希
+     */
+    private static int hash(String value, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + value.charAt(i);
+        }
+        return h;
+    }
+
+    private static boolean isGlob(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0;
+    }
+
+    /**
+     * 前缀树节点
+     */
+    private static final class Node {
+        /** 子树中最小的规则序号, 用于剪枝 */
+        int minRank = NO_MATCH;
+        /** 规则在此处为 ** */
+        int anyRank = NO_MATCH;
+        /** 规则在此之后还有剩余段 */
+        int prefixRank = NO_MATCH;
+        /** 规则在此结束(不以 / 结尾) */
+        int endRank = NO_MATCH;
+        /** 规则在此结束(以 / 结尾) */
+        int endSlashRank = NO_MATCH;
+
+        /** 字面量子节点, 开放寻址哈希表 */
+        String[] literalKeys = new String[0];
+        Node[] literalNodes = new Node[0];
+        int literalCount;
+
+        GlobSegment[] globs = new GlobSegment[0];
+        Node[] globNodes = new Node[0];
+        int globCount;
+
+        Node child(String segment) {
+            if (isGlob(segment)) {
+                for (int i = 0; i < this.globCount; i++) {
+                    if (this.globs[i].pattern.equals(segment)) {
+                        return this.globNodes[i];
+                    }
+                }
+                if (this.globCount == this.globs.length) {
+                    int capacity = Math.max(2, this.globCount * 2);
+                    this.globs = Arrays.copyOf(this.globs, capacity);
+                    this.globNodes = Arrays.copyOf(this.globNodes, capacity);
+                }
+                Node node = new Node();
+                this.globs[this.globCount] = new GlobSegment(segment);
+                this.globNodes[this.globCount++] = node;
+                return node;
+            }
+            Node node = literal(segment, 0, segment.length());
+            if (node == null) {
+                if ((this.literalCount + 1) * 2 > this.literalKeys.length) {
+                    rehash(Math.max(4, this.literalKeys.length * 2));
+                }
+                node = new Node();
+                put(segment, node);
+            }
+            return node;
+        }
+
+        Node literal(String path, int start, int end) {
+            int capacity = this.literalKeys.length;
+            if (capacity == 0) {
+                return null;
+            }
+            int length = end - start;
+            int index = hash(path, start, end) & (capacity - 1);
+            String key;
+            while ((key = this.literalKeys[index]) != null) {
+                if (key.length() == length && path.regionMatches(start, key, 0, length)) {
+                    return this.literalNodes[index];
+                }
+                index = (index + 1) & (capacity - 1);
+            }
+            return null;
+        }
+
+        private void put(String key, Node node) {
+            int capacity = this.literalKeys.length;
+            int index = key.hashCode() & (capacity - 1);
+            while (this.literalKeys[index] != null) {
+                index = (index + 1) & (capacity - 1);
+            }
+            this.literalKeys[index] = key;
+            this.literalNodes[index] = node;
+            this.literalCount++;
+        }
+
+        private void rehash(int capacity) {
+            String[] keys = this.literalKeys;
+            Node[] nodes = this.literalNodes;
+            this.literalKeys = new String[capacity];
+            this.literalNodes = new Node[capacity];
+            this.literalCount = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    put(keys[i], nodes[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 含通配符的路径段, 支持 * ? {name} 以及 {name:regex}
+     */
+    private static final class GlobSegment {
+        final String pattern;
+        /** 含正则变量时使用, 否则为 null */
+        final Pattern regex;
+
+        GlobSegment(String pattern) {
+            this.pattern = pattern;
+            this.regex = pattern.indexOf('{') >= 0 ? toRegex(pattern) : null;
+        }
+
+        boolean matches(String path, int start, int end) {
+            if (this.regex != null) {
+                return this.regex.matcher(path).region(start, end).matches();
+            }
+            // * 和 ? 的回溯匹配, 不分配对象
+            String glob = this.pattern;
+            int p = 0;
+            int s = start;
+            int starP = -1;
+            int starS = -1;
+            while (s < end) {
+                if (p < glob.length() && glob.charAt(p) == '*') {
+                    starP = p++;
+                    starS = s;
+                } else if (p < glob.length() && (glob.charAt(p) == '?' || glob.charAt(p) == path.charAt(s))) {
+                    p++;
+                    s++;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    s = ++starS;
+                } else {
+                    return false;
+                }
+            }
+            while (p < glob.length() && glob.charAt(p) == '*') {
+                p++;
+            }
+            return p == glob.length();
+        }
+
+        private static Pattern toRegex(String segment) {
+            StringBuilder regex = new StringBuilder();
+            int literalStart = 0;
+            for (int i = 0; i < segment.length(); i++) {
+                char c = segment.charAt(i);
+                if (c != '*' && c != '?' && c != '{') {
+                    continue;
+                }
+                if (i > literalStart) {
+                    regex.append(Pattern.quote(segment.substring(literalStart, i)));
+                }
+                if (c == '*') {
+                    regex.append(".*");
+                } else if (c == '?') {
+                    regex.append('.');
+                } else {
+                    int depth = 1;
+                    int close = i + 1;
+                    while (close < segment.length() && depth > 0) {
+                        char ch = segment.charAt(close);
+                        if (ch == '{') {
+                            depth++;
+                        } else if (ch == '}') {
+                            depth--;
+                        }
+                        close++;
+                    }
+                    String variable = segment.substring(i + 1, close - 1);
+                    int colon = variable.indexOf(':');
+                    regex.append('(').append(colon < 0 ? "(?s).*" : variable.substring(colon + 1)).append(')');
+                    i = close - 1;
+                }
+                literalStart = i + 1;
+            }
+            if (literalStart < segment.length()) {
+                regex.append(Pattern.quote(segment.substring(literalStart)));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+/***
+ * 路由签名校验策略
+ *
+ * 在 data.sign.matchStart 中通过 "路径:策略" 的形式为每条规则指定, 未指定时为 FULL
+ * @author ljy
+ */
+public enum SignPolicy {
+
+    /** 不进行签名校验 */
+    SKIP,
+    /** 只校验签名和时间, 不校验参数 */
+    TIME,
+    /** 校验签名、时间, GET请求按签名信息校验参数 */
+    FULL;
+
+    /**
+     * 解析策略名称(忽略大小写)
+     * @param name 策略名称
+     * @return
+     */
+    public static SignPolicy parse(String name) {
+        for (SignPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(name.trim())) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("未知的签名校验策略: " + name);
+    }
+}
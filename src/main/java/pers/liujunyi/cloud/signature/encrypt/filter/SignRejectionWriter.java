@@ -0,0 +1,153 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import pers.liujunyi.cloud.signature.exception.ErrorCodeEnum;
+import pers.liujunyi.cloud.signature.restful.ResultInfo;
+import pers.liujunyi.cloud.signature.util.DateTimeUtils;
+import pers.liujunyi.cloud.signature.util.JsonUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/***
+ * 签名校验失败响应
+ *
+ * 启动时为每种拒绝结果序列化一次响应体模板, 只有 timestamp 留出位置; 每秒第一次拒绝时把当前时间填入所有模板,
+ * 同一秒内的拒绝直接共享这些字节, 不再创建 ResultInfo、格式化时间和序列化 JSON.
+ * @author ljy
+ */
+final class SignRejectionWriter {
+
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    /** 与 yyyy-MM-dd HH:mm:ss 等长的占位符 */
+    private static final String TIMESTAMP_PLACEHOLDER = "0000-00-00 00:00:00";
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** 按 SignOutcome 序号存放的响应体模板, 不拒绝的结果为 null */
+    private final byte[][] templates;
+
+    /** 模板中 timestamp 的位置 */
+    private final int[] timestampOffsets;
+
+    /** 当前秒的响应体, 只读共享 */
+    private volatile Bodies current;
+
+    SignRejectionWriter() {
+        SignOutcome[] outcomes = SignOutcome.values();
+        this.templates = new byte[outcomes.length][];
+        this.timestampOffsets = new int[outcomes.length];
+        byte[] placeholder = TIMESTAMP_PLACEHOLDER.getBytes(StandardCharsets.US_ASCII);
+        for (SignOutcome outcome : outcomes) {
+            if (!outcome.isRejected()) {
+                continue;
+            }
+            ResultInfo result = new ResultInfo();
+            result.setTimestamp(TIMESTAMP_PLACEHOLDER);
+            result.setSuccess(false);
+            result.setStatus(outcome.getErrorCode().getCode());
+            result.setMessage(outcome.getMessage());
+            byte[] template = JsonUtils.toJsonBytes(result);
+            this.templates[outcome.ordinal()] = template;
+            this.timestampOffsets[outcome.ordinal()] = indexOf(template, placeholder);
+        }
+    }
+
+    /**
+     * 写出签名校验失败信息
+     * @param response
+     * @param outcome 拒绝的校验结果
+     * @return
+     */
+    Mono<Void> write(ServerHttpResponse response, SignOutcome outcome) {
+        byte[] body = this.body(outcome, System.currentTimeMillis());
+        response.setStatusCode(outcome.getStatus());
+        response.getHeaders().add(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * 写出请求体加解密过滤器的拒绝信息, HTTP 状态码和响应体中的 status 都取自 errorCode.
+     * 这类拒绝不在签名校验的热点路径上, 直接序列化, 不使用模板
+     * @param response
+     * @param errorCode 错误代码, code 为 HTTP 状态码
+     * @param message 错误信息, 为 null 时使用 errorCode 的默认信息
+     * @return
+     */
+    static Mono<Void> write(ServerHttpResponse response, ErrorCodeEnum errorCode, String message) {
+        ResultInfo result = new ResultInfo(errorCode);
+        result.setTimestamp(DateTimeUtils.getCurrentDateTimeAsString());
+        result.setSuccess(false);
+        if (message != null) {
+            result.setMessage(message);
+        }
+        response.setStatusCode(HttpStatus.valueOf(errorCode.getCode()));
+        response.getHeaders().add(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE);
+        return response.writeWith(Mono.just(JsonUtils.toDataBuffer(result, response.bufferFactory())));
+    }
+
+    /**
+     * 当前秒的响应体
+     * @param outcome 拒绝的校验结果
+     * @param now 当前时间
+     * @return 调用方不能修改返回的数组
+     */
+    byte[] body(SignOutcome outcome, long now) {
+        long second = now / 1000L;
+        Bodies bodies = this.current;
+        if (bodies == null || bodies.second != second) {
+            // 多个线程同时跨秒时各自生成一份, 结果相同, 谁写入都可以
+            bodies = new Bodies(second, this.patch(second));
+            this.current = bodies;
+        }
+        return bodies.data[outcome.ordinal()];
+    }
+
+    private byte[][] patch(long second) {
+        byte[] timestamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault())
+                .format(FORMATTER).getBytes(StandardCharsets.US_ASCII);
+        byte[][] data = new byte[this.templates.length][];
+        for (int i = 0; i < this.templates.length; i++) {
+            byte[] template = this.templates[i];
+            if (template != null) {
+                byte[] body = template.clone();
+                System.arraycopy(timestamp, 0, body, this.timestampOffsets[i], timestamp.length);
+                data[i] = body;
+            }
+        }
+        return data;
+    }
+
+    private static int indexOf(byte[] data, byte[] target) {
+        outer:
+        for (int i = 0; i <= data.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (data[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new IllegalStateException("响应体模板中没有 timestamp 占位符");
+    }
+
+    /**
+     * 某一秒的全部响应体
+     */
+    private static final class Bodies {
+        private final long second;
+        private final byte[][] data;
+
+        Bodies(long second, byte[][] data) {
+            this.second = second;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * 签名防重放
+ *
+ * 记录有效期内出现过的签名摘要(64位), 同一个签名在有效期内只能使用一次.<br>
+ * 摘要按到达时间放入环形的时间桶, 每个桶是一张 long[] 开放寻址表, 桶过期时整桶清空复用,
+ * 不需要逐条过期; 再按摘要分成多个分段各自加锁, 内存上限 = 分段数 * 桶数 * 每桶容量 * 8 字节.<br>
+ * 有效期在运行中变化(密钥表重新加载)时按新的有效期重建时间桶, 旧的时间桶继续参与查重直到旧有效期结束,
+ * 切换期间内存占用最多翻倍.
+ * @author ljy
+ */
+public final class SignReplayGuard {
+
+    /** 分段数 */
+    private static final int STRIPES = 16;
+
+    /** 环形时间桶数量, 其中 BUCKETS - 1 个桶覆盖完整的有效期 */
+    private static final int BUCKETS = 8;
+
+    /** 单个桶的最大装载率 */
+    private static final int MAX_LOAD_PERCENT = 75;
+
+    private final int stripeCapacity;
+
+    /** 当前有效期对应的时间桶 */
+    private volatile Window current;
+
+    /** 有效期变化前的时间桶, 在旧有效期结束前继续查重, 没有时为 null */
+    private volatile Window previous;
+
+    /** 桶已满无法记录的次数 */
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * @param windowMillis 签名有效期(毫秒)
+     * @param capacity 每个时间桶可记录的签名数
+     */
+    public SignReplayGuard(long windowMillis, int capacity) {
+        this.stripeCapacity = tableSize(Math.max(1, capacity / STRIPES) * 100 / MAX_LOAD_PERCENT);
+        this.current = new Window(windowMillis, this.stripeCapacity);
+    }
+
+    /**
+     * 记录结果
+     */
+    public enum Result {
+        /** 有效期内第一次出现, 已记录 */
+        FIRST_SEEN,
+        /** 有效期内重复出现 */
+        REPLAYED,
+        /** 当前时间桶已满, 无法判断是否重复; 调用方应拒绝请求, 不能放行 */
+        FULL
+    }
+
+    /**
+     * 按当前的有效期记录签名, 有效期与上一次不同时先重建时间桶.<br>
+     * 时间桶已满时返回 {@link Result#FULL} 并计入 {@link #getOverflowCount()}, 不会当作第一次出现放行,
+     * 否则大量请求涌入时重放的签名会全部通过.
+     * @param sign 请求头中的签名
+     * @param now 当前时间戳
+     * @param windowMillis 当前的签名有效期(毫秒)
+     * @return
+     */
+    public Result check(String sign, long now, long windowMillis) {
+        Window window = this.current;
+        if (window.windowMillis != windowMillis) {
+            window = resize(windowMillis, now);
+        }
+        long digest = digest(sign);
+        int stripeIndex = (int) (digest >>> 60) & (STRIPES - 1);
+        Window old = this.previous;
+        if (old != null && now < old.retainUntil && old.stripes[stripeIndex].contains(digest, now / old.bucketMillis)) {
+            return Result.REPLAYED;
+        }
+        int result = window.stripes[stripeIndex].put(digest, now / window.bucketMillis);
+        if (result < 0) {
+            this.overflows.increment();
+            return Result.FULL;
+        }
+        return result > 0 ? Result.FIRST_SEEN : Result.REPLAYED;
+    }
+
+    /**
+     * 当前使用的有效期(毫秒)
+     * @return
+     */
+    public long getWindowMillis() {
+        return this.current.windowMillis;
+    }
+
+    /**
+     * 时间桶已满而被拒绝的签名数
+     * @return
+     */
+    public long getOverflowCount() {
+        return this.overflows.sum();
+    }
+
+    /**
+     * 64 位摘要, 0 作为空槽保留
+     */
+    static long digest(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private synchronized Window resize(long windowMillis, long now) {
+        Window window = this.current;
+        if (window.windowMillis != windowMillis) {
+            // 旧桶中的签名在旧有效期内仍然可能被重放
+            window.retainUntil = now + window.windowMillis;
+            this.previous = window;
+            window = new Window(windowMillis, this.stripeCapacity);
+            this.current = window;
+        }
+        return window;
+    }
+
+    private static int tableSize(int expected) {
+        int size = 16;
+        while (size < expected) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * 某个有效期对应的全部分段
+     */
+    private static final class Window {
+        final long windowMillis;
+        final long bucketMillis;
+        final Stripe[] stripes = new Stripe[STRIPES];
+        /** 被替换后继续查重的截止时间 */
+        volatile long retainUntil = Long.MAX_VALUE;
+
+        Window(long windowMillis, int stripeCapacity) {
+            this.windowMillis = windowMillis;
+            this.bucketMillis = Math.max(1L, (windowMillis + BUCKETS - 2) / (BUCKETS - 1));
+            for (int i = 0; i < STRIPES; i++) {
+                this.stripes[i] = new Stripe(stripeCapacity);
+            }
+        }
+    }
+
+    /**
+     * 分段: BUCKETS 个时间桶组成的环
+     */
+    private static final class Stripe {
+        final long[][] tables = new long[BUCKETS][];
+        final long[] epochs = new long[BUCKETS];
+        final int[] sizes = new int[BUCKETS];
+        final int maxSize;
+
+        Stripe(int capacity) {
+            for (int i = 0; i < BUCKETS; i++) {
+                this.tables[i] = new long[capacity];
+                this.epochs[i] = Long.MIN_VALUE;
+            }
+            this.maxSize = capacity * MAX_LOAD_PERCENT / 100;
+        }
+
+        /**
+         * 有效期内是否出现过, 不记录
+         */
+        synchronized boolean contains(long digest, long epoch) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long age = epoch - this.epochs[i];
+                if (age >= 0 && age < BUCKETS && contains(this.tables[i], digest)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return 1 新记录, 0 已存在, -1 桶已满
+         */
+        synchronized int put(long digest, long epoch) {
+            if (contains(digest, epoch)) {
+                return 0;
+            }
+            int current = (int) Math.floorMod(epoch, (long) BUCKETS);
+            if (this.epochs[current] != epoch) {
+                // 整桶过期, 清空后给当前时间段使用
+                Arrays.fill(this.tables[current], 0L);
+                this.sizes[current] = 0;
+                this.epochs[current] = epoch;
+            }
+            if (this.sizes[current] >= this.maxSize) {
+                return -1;
+            }
+            long[] table = this.tables[current];
+            int mask = table.length - 1;
+            int index = (int) digest & mask;
+            while (table[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            table[index] = digest;
+            this.sizes[current]++;
+            return 1;
+        }
+
+        private static boolean contains(long[] table, long digest) {
+            int mask = table.length - 1;
+            int index = (int) digest & mask;
+            long value;
+            while ((value = table[index]) != 0) {
+                if (value == digest) {
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import pers.liujunyi.cloud.signature.encrypt.CanonicalQuery;
+import pers.liujunyi.cloud.signature.encrypt.SignTenant;
+import pers.liujunyi.cloud.signature.encrypt.SignTokenFormat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/***
+ * 二进制签名信息解析器, 格式见 {@link SignTokenFormat}
+ *
+ * 固定头部按偏移直接读取, 参数按长度前缀切分, 不做任何文本扫描.<br>
+ * 数据不完整、版本不支持或标志位未知时抛出 IllegalArgumentException. 明文必须已经通过 AES-GCM 认证, 这里不再校验完整性.
+ * @author ljy
+ */
+final class SignTokenDecoder {
+
+    /** 已知的标志位 */
+    private static final int KNOWN_FLAGS = SignTokenFormat.FLAG_PARAMETER | SignTokenFormat.FLAG_QUERY_DIGEST;
+
+    private SignTokenDecoder() { }
+
+    /**
+     * 明文是否为二进制格式: JSON 明文以 '{' 或空白开头, 二进制格式以版本号开头
+     * @param data 解密后的签名信息
+     * @param offset 起始位置
+     * @param length 长度
+     * @return
+     */
+    static boolean isBinary(byte[] data, int offset, int length) {
+        return length > 0 && data[offset] >= 1 && data[offset] <= SignTokenFormat.MAX_VERSION;
+    }
+
+    /**
+     * 解析签名信息并校验密钥指纹
+     * @param data 解密后的签名信息
+     * @param offset 起始位置
+     * @param length 长度
+     * @param tenant 解密使用的密钥
+     * @return 密钥指纹不一致时返回 null
+     * @throws IllegalArgumentException 数据不完整、版本不支持或标志位未知
+     */
+    static SignClaims decode(byte[] data, int offset, int length, SignTenant tenant) {
+        if (length < SignTokenFormat.HEADER_LENGTH) {
+            throw new IllegalArgumentException("签名信息长度不足");
+        }
+        if (data[offset] != SignTokenFormat.VERSION) {
+            throw new IllegalArgumentException("不支持的签名信息版本: " + data[offset]);
+        }
+        int flags = data[offset + 1] & 0xFF;
+        if ((flags & ~KNOWN_FLAGS) != 0) {
+            throw new IllegalArgumentException("未知的签名信息标志: " + flags);
+        }
+        if (readInt(data, offset + 2) != tenant.getKeyFingerprint()) {
+            return null;
+        }
+        long signTime = (long) readInt(data, offset + 6) << 32 | (readInt(data, offset + 10) & 0xFFFFFFFFL);
+        int end = offset + length;
+        int paramStart = offset + SignTokenFormat.HEADER_LENGTH;
+        byte[] queryDigest = null;
+        if ((flags & SignTokenFormat.FLAG_QUERY_DIGEST) != 0) {
+            if (paramStart + CanonicalQuery.DIGEST_LENGTH > end) {
+                throw new IllegalArgumentException("签名信息查询参数摘要不完整");
+            }
+            queryDigest = Arrays.copyOfRange(data, paramStart, paramStart + CanonicalQuery.DIGEST_LENGTH);
+            paramStart += CanonicalQuery.DIGEST_LENGTH;
+        }
+        // 先数出参数个数, 数组按实际大小分配
+        int count = 0;
+        int position = paramStart;
+        while (position < end) {
+            position = skipParameter(data, position, end);
+            count++;
+        }
+        String[] names = new String[count];
+        String[] values = new String[count];
+        position = paramStart;
+        for (int i = 0; i < count; i++) {
+            int nameLength = data[position++] & 0xFF;
+            names[i] = new String(data, position, nameLength, StandardCharsets.UTF_8);
+            position += nameLength;
+            int valueLength = (data[position] & 0xFF) << 8 | (data[position + 1] & 0xFF);
+            position += 2;
+            values[i] = new String(data, position, valueLength, StandardCharsets.UTF_8);
+            position += valueLength;
+        }
+        return new SignClaims(tenant, signTime, (flags & SignTokenFormat.FLAG_PARAMETER) != 0, names, values, queryDigest);
+    }
+
+    private static int skipParameter(byte[] data, int position, int end) {
+        int nameLength = data[position] & 0xFF;
+        if (nameLength == 0) {
+            throw new IllegalArgumentException("签名信息参数名为空");
+        }
+        int valuePosition = position + 1 + nameLength;
+        if (valuePosition + 2 > end) {
+            throw new IllegalArgumentException("签名信息参数不完整");
+        }
+        int next = valuePosition + 2 + ((data[valuePosition] & 0xFF) << 8 | (data[valuePosition + 1] & 0xFF));
+        if (next > end) {
+            throw new IllegalArgumentException("签名信息参数不完整");
+        }
+        return next;
+    }
+
+    private static int readInt(byte[] data, int position) {
+        return (data[position] & 0xFF) << 24 | (data[position + 1] & 0xFF) << 16
+                | (data[position + 2] & 0xFF) << 8 | (data[position + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,175 @@
+package pers.liujunyi.cloud.signature.encrypt.filter;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.AbstractServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.Connection;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/***
+ * 签名校验线程池
+ *
+ * 开启后, 需要解密的签名校验从 Netty 事件循环转移到固定大小、有界队列的线程池中执行,
+ * 避免大量耗 CPU 的校验请求阻塞同一事件循环上的其他连接.<br>
+ * 签名较短(解密开销小于线程切换)或命中缓存时仍在当前线程中直接执行; 队列已满时直接以 503 拒绝,
+ * 不回退到事件循环上执行, 过载正是线程池要隔离的情况.<br>
+ * 校验结果回到请求所在连接的事件循环上发出, 之后的过滤器链、路由转发和响应写出都不在校验线程上执行,
+ * 校验线程只做签名校验.
+ * @author ljy
+ */
+@Log4j2
+@Component
+public class SignVerifyScheduler implements DisposableBean {
+
+    /** 是否开启线程池校验 */
+    @Value("${data.sign.offload.enabled:false}")
+    private boolean enabled;
+
+    /** 线程数, 小于等于 0 时使用 CPU 核数 */
+    @Value("${data.sign.offload.threads:0}")
+    private int threads;
+
+    /** 等待队列长度 */
+    @Value("${data.sign.offload.queueSize:1024}")
+    private int queueSize;
+
+    /**
+     * 签名长度不超过该值时直接在当前线程校验.
+     * 默认值按实际签名长度选取: 二进制格式的签名一般不超过 108 个字符, 不带参数的 AES(JSON) 签名为 128 个字符,
+     * 带参数的 AES(JSON) 签名通常在 200 个字符以上, 默认只把后者转移到线程池
+     */
+    @Value("${data.sign.offload.inlineMaxLength:128}")
+    private int inlineMaxLength;
+
+    /** 找不到连接的事件循环时使用 */
+    private static final Executor PARALLEL = runnable -> Schedulers.parallel().schedule(runnable);
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!this.enabled) {
+            return;
+        }
+        int poolSize = this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, this.queueSize)), runnable -> {
+                    Thread thread = new Thread(runnable, "sign-verify-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        log.info(">> 签名校验线程池已开启, 线程数 {}, 队列长度 {}", poolSize, this.queueSize);
+    }
+
+    /**
+     * 签名是否需要转移到线程池中校验
+     * @param sign 请求头中的签名
+     * @return
+     */
+    public boolean isOffload(String sign) {
+        return this.executor != null && sign != null && sign.length() > this.inlineMaxLength;
+    }
+
+    /**
+     * 在线程池中执行校验, 结果在请求所在连接的事件循环上发出
+     * @param task 校验任务
+     * @param request 当前请求, 用来找到连接的事件循环; 不是 Netty 连接时结果在 {@link Schedulers#parallel()} 上发出
+     * @param <T>
+     * @return 队列已满时以 {@link RejectedExecutionException} 结束
+     */
+    public <T> Mono<T> execute(Callable<T> task, ServerHttpRequest request) {
+        Executor resumeExecutor = resumeExecutor(request);
+        return Mono.create(sink -> {
+            Future<?> future;
+            try {
+                future = this.executor.submit(() -> {
+                    T result;
+                    try {
+                        result = task.call();
+                    } catch (Throwable e) {
+                        resume(resumeExecutor, () -> sink.error(e), sink::error);
+                        return;
+                    }
+                    resume(resumeExecutor, () -> sink.success(result), sink::error);
+                });
+            } catch (RejectedExecutionException e) {
+                this.rejectedCount.incrementAndGet();
+                sink.error(e);
+                return;
+            }
+            sink.onCancel(() -> future.cancel(false));
+        });
+    }
+
+    private static void resume(Executor resumeExecutor, Runnable signal, Consumer<Throwable> onRejected) {
+        try {
+            resumeExecutor.execute(signal);
+        } catch (RejectedExecutionException e) {
+            // 事件循环已关闭, 连接也随之关闭, 只需要结束订阅
+            onRejected.accept(e);
+        }
+    }
+
+    /**
+     * 请求所在连接的事件循环
+     */
+    private static Executor resumeExecutor(ServerHttpRequest request) {
+        while (request instanceof ServerHttpRequestDecorator) {
+            request = ((ServerHttpRequestDecorator) request).getDelegate();
+        }
+        if (request instanceof AbstractServerHttpRequest) {
+            try {
+                Object nativeRequest = ((AbstractServerHttpRequest) request).getNativeRequest();
+                if (nativeRequest instanceof Connection) {
+                    return ((Connection) nativeRequest).channel().eventLoop();
+                }
+            } catch (IllegalStateException e) {
+                // 模拟请求没有底层连接
+            }
+        }
+        return PARALLEL;
+    }
+
+    /**
+     * 队列已满被拒绝的次数
+     * @return
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.get();
+    }
+
+    /**
+     * 当前等待执行的任务数
+     * @return
+     */
+    public int getQueueSize() {
+        return this.executor == null ? 0 : this.executor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+    }
+}
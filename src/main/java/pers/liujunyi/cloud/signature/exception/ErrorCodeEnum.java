@@ -18,6 +18,9 @@ public enum ErrorCodeEnum {
     TOKEN_INVALID("无效的用户token.", 530),
     SIGN_INVALID("非法请求：数字签名错误.", 401),
     SIGN_TIME_OUT("非法请求：请求已过期.", 408),
+    TOO_MANY_REQUESTS("请求过于频繁,请稍后再试.", 429),
+    PAYLOAD_TOO_LARGE("请求体超过大小限制.", 413),
+    SERVICE_UNAVAILABLE("服务繁忙,请稍后再试.", 503),
     DATA_LOCK("数据被锁,已被他人修改,请稍候再试!", 409),
     NO_TOKEN("要访问此资源，需要身份验证,缺少token参数,必须在headers中Authorization传递token值.", 401);
 
@@ -0,0 +1,42 @@
+package pers.liujunyi.cloud.signature.util;
+
+import com.alibaba.fastjson.JSON;
+
+import java.nio.charset.StandardCharsets;
+
+/***
+ * 基于 fastjson 的 JSON 编解码
+ *
+ * 与之前 AesEncryptUtils 的输出保持一致(属性按名称排序, 不输出 null), 需要兼容旧客户端时通过
+ * 配置 data.json.codec=fastjson 选用.
+ * @author ljy
+ */
+public final class FastJsonCodec implements JsonCodec {
+
+    public static final String NAME = "fastjson";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object obj) {
+        return JSON.toJSONBytes(obj);
+    }
+
+    @Override
+    public String encodeToString(Object obj) {
+        return JSON.toJSONString(obj);
+    }
+
+    @Override
+    public <T> T decode(byte[] data, int offset, int length, Class<T> type) {
+        return JSON.parseObject(data, offset, length, StandardCharsets.UTF_8, type);
+    }
+
+    @Override
+    public <T> T decode(String json, Class<T> type) {
+        return JSON.parseObject(json, type);
+    }
+}
@@ -0,0 +1,37 @@
+package pers.liujunyi.cloud.signature.util;
+
+/***
+ * 基于 Jackson 的 JSON 编解码, 默认实现
+ *
+ * 直接使用 {@link JsonUtils} 的 ObjectMapper 和缓存的 ObjectReader/ObjectWriter, 与网关其他地方共用一套序列化信息.
+ * @author ljy
+ */
+public final class JacksonJsonCodec implements JsonCodec {
+
+    public static final String NAME = "jackson";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object obj) {
+        return JsonUtils.toJsonBytes(obj);
+    }
+
+    @Override
+    public String encodeToString(Object obj) {
+        return JsonUtils.toJson(obj);
+    }
+
+    @Override
+    public <T> T decode(byte[] data, int offset, int length, Class<T> type) {
+        return JsonUtils.toBean(type, data, offset, length);
+    }
+
+    @Override
+    public <T> T decode(String json, Class<T> type) {
+        return JsonUtils.toBean(type, json);
+    }
+}
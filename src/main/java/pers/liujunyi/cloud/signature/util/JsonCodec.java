@@ -0,0 +1,49 @@
+package pers.liujunyi.cloud.signature.util;
+
+/***
+ * JSON 编解码接口
+ *
+ * AesEncryptUtils 等需要把对象转为 JSON 的地方统一通过 {@link JsonCodecs#get()} 取得实现,
+ * 同一份数据只经过一个 JSON 库, 只预热一套序列化信息.
+ * @author ljy
+ */
+public interface JsonCodec {
+
+    /**
+     * 实现名称, 通过配置项 data.json.codec 选择实现时使用
+     * @return
+     */
+    String name();
+
+    /**
+     * 序列化为 UTF-8 字节
+     * @param obj
+     * @return
+     */
+    byte[] encode(Object obj);
+
+    /**
+     * 序列化为字符串
+     * @param obj
+     * @return
+     */
+    String encodeToString(Object obj);
+
+    /**
+     * UTF-8 字节转对象
+     * @param data
+     * @param offset 起始位置
+     * @param length 长度
+     * @param type 目标类型
+     * @return
+     */
+    <T> T decode(byte[] data, int offset, int length, Class<T> type);
+
+    /**
+     * 字符串转对象
+     * @param json
+     * @param type 目标类型
+     * @return
+     */
+    <T> T decode(String json, Class<T> type);
+}
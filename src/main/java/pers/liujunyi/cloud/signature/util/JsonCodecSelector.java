@@ -0,0 +1,27 @@
+package pers.liujunyi.cloud.signature.util;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/***
+ * 按配置项 data.json.codec 选择 {@link JsonCodecs} 使用的 JSON 编解码实现
+ * @author ljy
+ */
+@Log4j2
+@Component
+public class JsonCodecSelector {
+
+    /** 实现名称: jackson (默认)、fastjson 或通过 ServiceLoader 注册的其他实现 */
+    @Value("${data.json.codec:jackson}")
+    private String codec;
+
+    @PostConstruct
+    public void init() {
+        JsonCodec jsonCodec = JsonCodecs.load(this.codec);
+        JsonCodecs.set(jsonCodec);
+        log.info(">> JSON 编解码实现: {}", jsonCodec.name());
+    }
+}
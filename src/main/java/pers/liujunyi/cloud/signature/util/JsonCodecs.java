@@ -0,0 +1,76 @@
+package pers.liujunyi.cloud.signature.util;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ServiceLoader;
+
+/***
+ * JSON 编解码实现的选择
+ *
+ * 默认使用 Jackson; 配置项 data.json.codec 可以指定 jackson、fastjson,
+ * 或者通过 META-INF/services/pers.liujunyi.cloud.signature.util.JsonCodec 注册的其他实现的名称, 由 {@link JsonCodecSelector} 在启动时设置.
+ * @author ljy
+ */
+@Log4j2
+public final class JsonCodecs {
+
+    private static volatile JsonCodec codec = new JacksonJsonCodec();
+
+    private JsonCodecs() { }
+
+    /**
+     * 当前使用的实现
+     * @return
+     */
+    public static JsonCodec get() {
+        return codec;
+    }
+
+    /**
+     * 替换当前使用的实现
+     * @param jsonCodec
+     */
+    public static void set(JsonCodec jsonCodec) {
+        if (jsonCodec == null) {
+            throw new IllegalArgumentException("jsonCodec 不能为 null");
+        }
+        codec = jsonCodec;
+    }
+
+    /**
+     * 按名称获取实现
+     * @param name 实现名称
+     * @return 名称不存在时抛出 IllegalArgumentException
+     */
+    public static JsonCodec forName(String name) {
+        if (JacksonJsonCodec.NAME.equalsIgnoreCase(name)) {
+            return new JacksonJsonCodec();
+        }
+        if (FastJsonCodec.NAME.equalsIgnoreCase(name)) {
+            return new FastJsonCodec();
+        }
+        for (JsonCodec candidate : ServiceLoader.load(JsonCodec.class)) {
+            if (candidate.name().equalsIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("未知的 JSON 编解码实现: " + name);
+    }
+
+    /**
+     * 按名称获取实现, 名称为空时使用 Jackson, 名称不存在时记录警告并使用 Jackson
+     * @param name 实现名称
+     * @return
+     */
+    static JsonCodec load(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return new JacksonJsonCodec();
+        }
+        try {
+            return forName(name.trim());
+        } catch (IllegalArgumentException e) {
+            log.warn(">> {}, 使用默认的 Jackson 实现", e.getMessage());
+            return new JacksonJsonCodec();
+        }
+    }
+}
@@ -1,18 +1,35 @@
 package pers.liujunyi.cloud.signature.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Json 工具类
+ *
+ * 每个类型的 ObjectReader/ObjectWriter 只创建一次, 之后直接复用, 不再每次查找类型的序列化信息;
+ * 字节相关的方法直接读写 UTF-8 字节, 不经过 String.
  * @author ljy
  *
  */
 public class JsonUtils {
 	private static ObjectMapper mapper = new ObjectMapper();
+
+	private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+	private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
 	
 	public static String toString(Object obj){
 		return toJson(obj);
@@ -20,21 +37,129 @@ public class JsonUtils {
 	
 	public static String toJson(Object obj){
 		try{
-			StringWriter writer = new StringWriter();
-			mapper.writeValue(writer, obj);
-			return writer.toString();
+			return writer(obj).writeValueAsString(obj);
+		}catch(Exception e){
+			throw new RuntimeException("序列化对象【"+obj+"】时出错", e);
+		}
+	}
+
+	/**
+	 * 序列化为 UTF-8 字节
+	 * @param obj
+	 * @return
+	 */
+	public static byte[] toJsonBytes(Object obj){
+		try{
+			return writer(obj).writeValueAsBytes(obj);
+		}catch(Exception e){
+			throw new RuntimeException("序列化对象【"+obj+"】时出错", e);
+		}
+	}
+
+	/**
+	 * 序列化后写入输出流, 不关闭输出流
+	 * @param obj
+	 * @param out
+	 */
+	public static void writeJson(Object obj, OutputStream out){
+		try{
+			writer(obj).writeValue(out, obj);
+		}catch(Exception e){
+			throw new RuntimeException("序列化对象【"+obj+"】时出错", e);
+		}
+	}
+
+	/**
+	 * 序列化后直接写入 bufferFactory 分配的缓冲区(Netty 环境下为 Netty 缓冲区)
+	 * @param obj
+	 * @param bufferFactory
+	 * @return
+	 */
+	public static DataBuffer toDataBuffer(Object obj, DataBufferFactory bufferFactory){
+		DataBuffer buffer = bufferFactory.allocateBuffer();
+		try{
+			writer(obj).writeValue(buffer.asOutputStream(), obj);
+			return buffer;
 		}catch(Exception e){
+			DataBufferUtils.release(buffer);
 			throw new RuntimeException("序列化对象【"+obj+"】时出错", e);
 		}
 	}
 	
 	public static <T> T toBean(Class<T> entityClass, String jsonString){
 		try {
-			return mapper.readValue(jsonString, entityClass);
+			return reader(entityClass).readValue(jsonString);
 		} catch (Exception e) {
 			throw new RuntimeException("JSON【"+jsonString+"】转对象时出错", e);
 		}
 	}
+
+	/**
+	 * UTF-8 字节转对象
+	 * @param entityClass
+	 * @param data
+	 * @return
+	 */
+	public static <T> T toBean(Class<T> entityClass, byte[] data){
+		return toBean(entityClass, data, 0, data.length);
+	}
+
+	/**
+	 * UTF-8 字节转对象
+	 * @param entityClass
+	 * @param data
+	 * @param offset 起始位置
+	 * @param length 长度
+	 * @return
+	 */
+	public static <T> T toBean(Class<T> entityClass, byte[] data, int offset, int length){
+		try {
+			return reader(entityClass).readValue(data, offset, length);
+		} catch (Exception e) {
+			// 字节内容可能很大或不是文本, 异常信息中只带长度
+			throw new RuntimeException("JSON(" + length + " 字节)转对象时出错", e);
+		}
+	}
+
+	/**
+	 * 输入流转对象, 不关闭输入流
+	 * @param entityClass
+	 * @param in
+	 * @return
+	 */
+	public static <T> T toBean(Class<T> entityClass, InputStream in){
+		try {
+			return reader(entityClass).readValue(in);
+		} catch (Exception e) {
+			throw new RuntimeException("JSON 输入流转对象时出错", e);
+		}
+	}
+
+	/**
+	 * 类型对应的 ObjectReader, 每个类型只创建一次
+	 * @param entityClass
+	 * @return
+	 */
+	public static ObjectReader reader(Class<?> entityClass){
+		ObjectReader reader = READERS.get(entityClass);
+		return reader != null ? reader : READERS.computeIfAbsent(entityClass,
+				type -> mapper.readerFor(type).without(JsonParser.Feature.AUTO_CLOSE_SOURCE));
+	}
+
+	/**
+	 * 类型对应的 ObjectWriter, 每个类型只创建一次
+	 * @param entityClass
+	 * @return
+	 */
+	public static ObjectWriter writer(Class<?> entityClass){
+		ObjectWriter writer = WRITERS.get(entityClass);
+		return writer != null ? writer : WRITERS.computeIfAbsent(entityClass,
+				type -> mapper.writerFor(type).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET));
+	}
+
+	private static ObjectWriter writer(Object obj){
+		return obj == null ? writer(Object.class) : writer(obj.getClass());
+	}
 	
 	/**
 	 * 用于对象通过其他工具已转为JSON的字符形式，这里不需要再加上引号